@@ -0,0 +1,279 @@
+/*
+    A square `n` x `n` matrix that can only have
+    nonzero elements within `kl` diagonals below
+    the main diagonal and `ku` diagonals above it.
+
+    Only those diagonals are stored, so this takes
+    O(n * (kl + ku)) memory instead of the n^2 of a
+    Matrix, and solve() and det() take O(n * kl * (kl + ku))
+    time instead of treating the matrix as dense.
+
+    Like Matrix and Vector, rows and columns are
+    numbered starting at 1.
+ */
+public class BandMatrix {
+    private int n;
+    private int kl;
+    private int ku;
+
+    /*
+        The diagonals are stored column by column.
+        Column `c` (0-based) takes `ldab` entries of
+        `band`, and the element in row `r` is at
+        (kl + ku + r - c) + c * ldab.
+
+        The top `kl` entries of every column are not
+        part of the matrix; they leave room for the
+        elements that row swaps add during the LU
+        factorization.
+     */
+    private int ldab;
+    private double[] band;
+
+    /*
+        The LU factorization of the matrix and its row
+        swaps. These are computed by the first solve()
+        or det() and thrown away by set().
+     */
+    private double[] lu;
+    private int[] pivots;
+
+    /*
+        Initializes an `n` x `n` zero matrix with `kl`
+        diagonals below and `ku` diagonals above the
+        main diagonal.
+     */
+    public BandMatrix(int n, int kl, int ku) {
+        this.n = n;
+        this.kl = kl;
+        this.ku = ku;
+        this.ldab = 2 * kl + ku + 1;
+        this.band = new double[this.ldab * n];
+    }
+
+    /*
+        Copies the diagonals of `m` that lie within the
+        band into a new BandMatrix. Elements of `m` outside
+        the band are assumed to be 0 and are ignored.
+     */
+    public static BandMatrix fromMatrix(Matrix m, int kl, int ku) throws Matrix.NotSquareMatrixException {
+        if (m.numRows() != m.numCols()) {
+            throw m.new NotSquareMatrixException("Band matrices must be square.");
+        }
+
+        BandMatrix bandMatrix = new BandMatrix(m.numRows(), kl, ku);
+        for (int col = 1; col <= m.numCols(); col++) {
+            Vector currCol = m.getColumn(col);
+            int firstRow = Math.max(1, col - ku);
+            int lastRow = Math.min(m.numRows(), col + kl);
+            for (int row = firstRow; row <= lastRow; row++) {
+                bandMatrix.set(row, col, currCol.getElement(row));
+            }
+        }
+        return bandMatrix;
+    }
+
+    /*
+        Returns a dense Matrix with the same elements.
+     */
+    public Matrix toMatrix() {
+        double[] values = new double[this.n * this.n];
+        for (int c = 0; c < this.n; c++) {
+            int firstRow = Math.max(0, c - this.ku);
+            int lastRow = Math.min(this.n - 1, c + this.kl);
+            for (int r = firstRow; r <= lastRow; r++) {
+                values[c * this.n + r] = this.band[this.index(r, c)];
+            }
+        }
+        return Matrix.fromColumnMajor(values, this.n, this.n);
+    }
+
+    public int size() {
+        return this.n;
+    }
+
+    public int lowerBandwidth() {
+        return this.kl;
+    }
+
+    public int upperBandwidth() {
+        return this.ku;
+    }
+
+    private boolean inBand(int row, int col) {
+        return row >= 1 && row <= this.n && col >= 1 && col <= this.n &&
+               row - col <= this.kl && col - row <= this.ku;
+    }
+
+    /*
+        0-based position of the element in row `r`
+        and column `c` (both 0-based) in `band`.
+     */
+    private int index(int r, int c) {
+        return (this.kl + this.ku + r - c) + c * this.ldab;
+    }
+
+    /*
+        Elements outside of the band are always 0.
+     */
+    public double get(int row, int col) {
+        if (this.inBand(row, col)) {
+            return this.band[this.index(row - 1, col - 1)];
+        }
+        return 0;
+    }
+
+    /*
+        Elements outside of the band can not be set,
+        just like Vector.setElement() ignores invalid
+        positions.
+     */
+    public void set(int row, int col, double value) {
+        if (this.inBand(row, col)) {
+            this.band[this.index(row - 1, col - 1)] = value;
+            this.lu = null;
+            this.pivots = null;
+        }
+    }
+
+    /*
+        Factors the matrix into P * L * U with Gaussian
+        elimination and partial pivoting, restricted to
+        the band.
+
+        Swapping two rows can make U have up to `kl + ku`
+        diagonals above the main diagonal, which is why
+        `ldab` has room for `kl` extra diagonals.
+     */
+    private void factor() throws SingularMatrixException {
+        if (this.lu != null) {
+            return;
+        }
+
+        double[] a = this.band.clone();
+        int[] piv = new int[this.n];
+        int upper = this.kl + this.ku;
+
+        for (int j = 0; j < this.n; j++) {
+            int lastRow = Math.min(this.n - 1, j + this.kl);
+            int lastCol = Math.min(this.n - 1, j + upper);
+
+            // Find the largest element in the column at or below the diagonal
+            int pivotRow = j;
+            for (int r = j + 1; r <= lastRow; r++) {
+                if (Math.abs(a[this.index(r, j)]) > Math.abs(a[this.index(pivotRow, j)])) {
+                    pivotRow = r;
+                }
+            }
+            piv[j] = pivotRow;
+
+            if (a[this.index(pivotRow, j)] == 0) {
+                throw new SingularMatrixException("Band matrix is singular.");
+            }
+
+            if (pivotRow != j) {
+                for (int c = j; c <= lastCol; c++) {
+                    double temp = a[this.index(j, c)];
+                    a[this.index(j, c)] = a[this.index(pivotRow, c)];
+                    a[this.index(pivotRow, c)] = temp;
+                }
+            }
+
+            double pivot = a[this.index(j, j)];
+            for (int r = j + 1; r <= lastRow; r++) {
+                double l = a[this.index(r, j)] / pivot;
+                a[this.index(r, j)] = l;
+                if (l != 0) {
+                    for (int c = j + 1; c <= lastCol; c++) {
+                        a[this.index(r, c)] -= l * a[this.index(j, c)];
+                    }
+                }
+            }
+        }
+
+        this.lu = a;
+        this.pivots = piv;
+    }
+
+    /*
+        Returns the solution `x` of the system A * x = `b`
+        where A is the current matrix. `b` is not altered.
+     */
+    public double[] solve(double[] b) throws SingularMatrixException, Matrix.DimensionMismatchException {
+        this.checkSize(b);
+        this.factor();
+
+        double[] x = b.clone();
+        int upper = this.kl + this.ku;
+
+        // Apply the row swaps and L, going down
+        for (int j = 0; j < this.n; j++) {
+            int p = this.pivots[j];
+            if (p != j) {
+                double temp = x[j];
+                x[j] = x[p];
+                x[p] = temp;
+            }
+            int lastRow = Math.min(this.n - 1, j + this.kl);
+            for (int r = j + 1; r <= lastRow; r++) {
+                x[r] -= this.lu[this.index(r, j)] * x[j];
+            }
+        }
+
+        // Solve with U, going up
+        for (int j = this.n - 1; j >= 0; j--) {
+            x[j] /= this.lu[this.index(j, j)];
+            int firstRow = Math.max(0, j - upper);
+            for (int r = firstRow; r < j; r++) {
+                x[r] -= this.lu[this.index(r, j)] * x[j];
+            }
+        }
+
+        return x;
+    }
+
+    public Vector solve(Vector b) throws SingularMatrixException, Matrix.DimensionMismatchException {
+        return new Vector(this.solve(b.getValuesArray()));
+    }
+
+    /*
+        Throws a DimensionMismatchException unless `b`
+        has one element per row of the current matrix.
+        Matrix.DimensionMismatchException is an inner
+        class, so it needs an (empty) Matrix to create it.
+     */
+    private void checkSize(double[] b) throws Matrix.DimensionMismatchException {
+        if (b.length != this.n) {
+            throw new Matrix().new DimensionMismatchException(
+                    "The vector must have one element per row of the matrix.");
+        }
+    }
+
+    /*
+        The determinant is the product of the diagonal
+        of U, with its sign flipped once for every row
+        swap made while factoring.
+
+        A singular matrix has a determinant of 0.
+     */
+    public double det() {
+        try {
+            this.factor();
+        } catch (SingularMatrixException e) {
+            return 0;
+        }
+
+        double total = 1;
+        for (int j = 0; j < this.n; j++) {
+            total *= this.lu[this.index(j, j)];
+            if (this.pivots[j] != j) {
+                total = -total;
+            }
+        }
+        return total;
+    }
+
+    public String toString() {
+        return this.toMatrix().toString();
+    }
+}
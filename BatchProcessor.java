@@ -0,0 +1,271 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+    This program runs Matrix operations over every
+    matrix in an input file and writes the results
+    to an output file:
+
+    java BatchProcessor <operations> <input file> <output file> [threads]
+
+    `operations` is a comma-separated list of
+    det, inverse, rref and isInvertible.
+
+    The input file holds one matrix after another.
+    Each row of a matrix is on its own line, with its
+    elements separated by spaces, and matrices are
+    separated by one or more blank lines:
+
+    1 2
+    3 4
+
+    2 0 0
+    0 2 0
+    0 0 2
+
+    For every matrix, the output file gets a "# matrix N"
+    line, the result of each operation, and a blank line.
+    If an operation fails (for example det() of a matrix
+    that is not square, or inverse of a singular one),
+    "error: ..." is written instead.
+
+    The matrices are read one at a time and handed to a
+    fixed pool of worker threads. At most `window` of
+    them are read ahead of the one being written, so
+    reading stops while the workers catch up, and memory
+    use stays the same no matter how big the file is.
+    Results are written in the same order as the input.
+ */
+public class BatchProcessor {
+    private static final String[] OPERATIONS = { "det", "inverse", "rref", "isInvertible" };
+
+    private String[] operations;
+    private int threads;
+    private int window;
+
+    /*
+        `window` is the largest number of matrices that
+        are read, but not yet written, at any time.
+     */
+    public BatchProcessor(String[] operations, int threads, int window) {
+        for (String operation : operations) {
+            if (!BatchProcessor.isOperation(operation)) {
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+            }
+        }
+        this.operations = operations;
+        this.threads = Math.max(threads, 1);
+        this.window = Math.max(window, 1);
+    }
+
+    private static boolean isOperation(String operation) {
+        for (String known : OPERATIONS) {
+            if (known.equals(operation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+        Reads every matrix from `in`, and writes the
+        results to `out` in the same order.
+
+        Returns the number of matrices processed.
+     */
+    public long run(BufferedReader in, BufferedWriter out) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        long count = 0;
+
+        try {
+            ArrayList<double[]> rows;
+            while ((rows = BatchProcessor.readMatrix(in)) != null) {
+                count++;
+                pending.add(pool.submit(new Job(count, rows)));
+
+                /*
+                    Once the window is full, wait for the
+                    oldest matrix to finish and write it
+                    before reading the next one.
+                 */
+                if (pending.size() >= this.window) {
+                    BatchProcessor.write(pending.poll(), out);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                BatchProcessor.write(pending.poll(), out);
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return count;
+    }
+
+    private static void write(Future<String> result, BufferedWriter out) throws IOException, InterruptedException {
+        try {
+            out.write(result.get());
+        } catch (ExecutionException e) {
+            throw new IOException("Job failed unexpectedly.", e.getCause());
+        }
+    }
+
+    /*
+        Returns the rows of the next matrix in `in`,
+        or null when there are no more matrices.
+
+        A row that is not a list of numbers is returned
+        as null inside the list, so that the job can
+        report the error without stopping the batch.
+     */
+    private static ArrayList<double[]> readMatrix(BufferedReader in) throws IOException {
+        ArrayList<double[]> rows = new ArrayList<double[]>();
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                if (rows.isEmpty()) {
+                    continue;
+                }
+                break;
+            }
+
+            String[] tokens = line.split("\\s+");
+            double[] row = new double[tokens.length];
+            try {
+                for (int i = 0; i < tokens.length; i++) {
+                    row[i] = Double.parseDouble(tokens[i]);
+                }
+                rows.add(row);
+            } catch (NumberFormatException e) {
+                rows.add(null);
+            }
+        }
+
+        return rows.isEmpty() ? null : rows;
+    }
+
+    /*
+        Runs every operation on one matrix and returns
+        the text to write for it.
+     */
+    private class Job implements Callable<String> {
+        private final long number;
+        private final ArrayList<double[]> rows;
+
+        Job(long number, ArrayList<double[]> rows) {
+            this.number = number;
+            this.rows = rows;
+        }
+
+        @Override
+        public String call() {
+            StringBuilder str = new StringBuilder();
+            str.append("# matrix ").append(this.number).append("\n");
+
+            Matrix matrix;
+            try {
+                matrix = this.toMatrix();
+            } catch (IllegalArgumentException e) {
+                str.append("error: ").append(e.getMessage()).append("\n\n");
+                return str.toString();
+            }
+
+            for (String operation : BatchProcessor.this.operations) {
+                str.append(operation).append(":");
+                try {
+                    str.append(BatchProcessor.apply(operation, matrix));
+                } catch (Exception e) {
+                    str.append(" error: ").append(e.getMessage()).append("\n");
+                }
+            }
+            str.append("\n");
+            return str.toString();
+        }
+
+        /*
+            Builds the Matrix column by column, since
+            the rows were read from the file.
+         */
+        private Matrix toMatrix() {
+            int numCols = -1;
+            for (double[] row : this.rows) {
+                if (row == null) {
+                    throw new IllegalArgumentException("row is not a list of numbers");
+                }
+                if (numCols != -1 && row.length != numCols) {
+                    throw new IllegalArgumentException("rows have different lengths");
+                }
+                numCols = row.length;
+            }
+
+            Matrix matrix = new Matrix();
+            for (int col = 0; col < numCols; col++) {
+                Vector currCol = new Vector(this.rows.size());
+                for (int row = 0; row < this.rows.size(); row++) {
+                    currCol.setElement(row + 1, this.rows.get(row)[col]);
+                }
+                matrix.addColumn(currCol);
+            }
+            return matrix;
+        }
+    }
+
+    /*
+        Returns the result of one operation, starting
+        with a space for single values or a new line
+        for matrices.
+
+        rref() alters the matrix, so it is run on a copy.
+     */
+    private static String apply(String operation, Matrix matrix) throws Matrix.NotSquareMatrixException {
+        switch (operation) {
+            case "det":
+                return " " + matrix.det() + "\n";
+            case "inverse":
+                try {
+                    return "\n" + matrix.checkedInverse().toString();
+                } catch (SingularMatrixException e) {
+                    return " error: matrix is singular\n";
+                }
+            case "rref":
+                Matrix copy = new Matrix(matrix);
+                copy.rref();
+                return "\n" + copy.toString();
+            default:
+                return " " + matrix.isInvertible() + "\n";
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: java BatchProcessor <det,inverse,rref,isInvertible> " +
+                               "<input file> <output file> [threads]");
+            System.exit(1);
+        }
+
+        int threads = args.length > 3 ? Integer.parseInt(args[3])
+                                      : Runtime.getRuntime().availableProcessors();
+        BatchProcessor processor = new BatchProcessor(args[0].split(","), threads, 4 * threads);
+
+        try (BufferedReader in = new BufferedReader(new FileReader(args[1]));
+             BufferedWriter out = new BufferedWriter(new FileWriter(args[2]))) {
+            long count = processor.run(in, out);
+            System.err.println("Processed " + count + " matrices.");
+        }
+    }
+}
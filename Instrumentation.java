@@ -0,0 +1,329 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*
+    This class counts the work done inside the
+    Matrix operations (rref(), inverse(), det(), ...)
+    so that it is possible to see where the time goes.
+
+    For every call of an instrumented operation, the
+    following are counted:
+    - ROW OPERATIONS (SWAP, SCALE, SUBSTITUTION)
+    - FLOATING POINT OPERATIONS (FLOPS)
+    - MATRIX AND VECTOR ALLOCATIONS (EVERY MATRIX OR
+      VECTOR OBJECT CREATED, COUNTED BY THEIR
+      CONSTRUCTORS; PLAIN SCRATCH ARRAYS SUCH AS THE
+      COLUMN-MAJOR COPIES AND THE STRASSEN WORKSPACE
+      ARE NOT COUNTED)
+    - THE DEEPEST RECURSION (FOR detHelper())
+
+    The counts of each call are added to the totals
+    of that operation, the latency of the call is
+    added to a histogram, and a JFR event is emitted
+    that can be seen in a flight recording.
+
+    Instrumentation is disabled by default. While it
+    is disabled, every hook below returns right after
+    checking a single flag, so it can be left in the
+    code for production profiling.
+ */
+public class Instrumentation {
+    private static volatile boolean enabled = false;
+
+    /*
+        The calls that are in progress on each thread.
+        Nested calls (such as the solve() that
+        solveMixedPrecision() falls back to)
+        point to the call that they were made from.
+     */
+    private static final ThreadLocal<Call> currentCall = new ThreadLocal<Call>();
+
+    private static final Map<String, OperationStats> stats =
+            new ConcurrentHashMap<String, OperationStats>();
+
+    public static void enable() {
+        Instrumentation.enabled = true;
+    }
+
+    public static void disable() {
+        Instrumentation.enabled = false;
+    }
+
+    public static boolean isEnabled() {
+        return Instrumentation.enabled;
+    }
+
+    /*
+        Returns the totals recorded for `operation`
+        (for example "rref"), or null if that operation
+        has not been called while instrumentation was
+        enabled.
+     */
+    public static OperationStats getStats(String operation) {
+        return Instrumentation.stats.get(operation);
+    }
+
+    public static void reset() {
+        Instrumentation.stats.clear();
+    }
+
+    /*
+        THE FOLLOWING METHODS ARE THE HOOKS
+        THAT THE MATRIX CLASS CALLS FROM ITS
+        OPERATIONS.
+     */
+
+    /*
+        Starts a call of `operation` on the Matrix `m`.
+
+        Returns null when instrumentation is disabled,
+        and end() does nothing with a null call.
+     */
+    static Call begin(String operation, Matrix m) {
+        if (!Instrumentation.enabled) {
+            return null;
+        }
+
+        Call call = new Call(operation, m.numRows(), m.numCols(), Instrumentation.currentCall.get());
+        Instrumentation.currentCall.set(call);
+        call.event.begin();
+        call.startNanos = System.nanoTime();
+        return call;
+    }
+
+    static void end(Call call) {
+        if (call == null) {
+            return;
+        }
+
+        long elapsedNanos = System.nanoTime() - call.startNanos;
+        Instrumentation.currentCall.set(call.parent);
+
+        /*
+            The work done in a nested call is also
+            work done by the call that it was made from.
+         */
+        if (call.parent != null) {
+            call.parent.rowOperations += call.rowOperations;
+            call.parent.flops += call.flops;
+            call.parent.allocations += call.allocations;
+            call.parent.maxDepth = Math.max(call.parent.maxDepth, call.parent.depth + call.maxDepth);
+        }
+
+        Instrumentation.stats.computeIfAbsent(call.operation, op -> new OperationStats())
+                             .record(call, elapsedNanos);
+
+        call.event.end();
+        if (call.event.shouldCommit()) {
+            call.event.operation = call.operation;
+            call.event.rows = call.rows;
+            call.event.cols = call.cols;
+            call.event.rowOperations = call.rowOperations;
+            call.event.flops = call.flops;
+            call.event.allocations = call.allocations;
+            call.event.maxRecursionDepth = call.maxDepth;
+            call.event.commit();
+        }
+    }
+
+    /*
+        Counts one row operation that took `flops`
+        floating point operations.
+     */
+    static void rowOperation(long flops) {
+        if (!Instrumentation.enabled) {
+            return;
+        }
+
+        Call call = Instrumentation.currentCall.get();
+        if (call != null) {
+            call.rowOperations++;
+            call.flops += flops;
+        }
+    }
+
+    /*
+        Counts floating point operations that are
+        not part of a row operation.
+     */
+    static void flops(long flops) {
+        if (!Instrumentation.enabled) {
+            return;
+        }
+
+        Call call = Instrumentation.currentCall.get();
+        if (call != null) {
+            call.flops += flops;
+        }
+    }
+
+    /*
+        Counts `count` new Matrix or Vector objects.
+        It is called by the constructors of Matrix and
+        Vector, so every object that an operation creates
+        (temporaries and results) is counted once, and
+        nothing else is.
+     */
+    static void allocations(long count) {
+        if (!Instrumentation.enabled) {
+            return;
+        }
+
+        Call call = Instrumentation.currentCall.get();
+        if (call != null) {
+            call.allocations += count;
+        }
+    }
+
+    static void enterRecursion() {
+        if (!Instrumentation.enabled) {
+            return;
+        }
+
+        Call call = Instrumentation.currentCall.get();
+        if (call != null) {
+            call.depth++;
+            call.maxDepth = Math.max(call.maxDepth, call.depth);
+        }
+    }
+
+    static void exitRecursion() {
+        if (!Instrumentation.enabled) {
+            return;
+        }
+
+        Call call = Instrumentation.currentCall.get();
+        if (call != null) {
+            call.depth--;
+        }
+    }
+
+    /*
+        The counts for a single call of an operation.
+     */
+    static class Call {
+        private final String operation;
+        private final int rows;
+        private final int cols;
+        private final Call parent;
+        private final MatrixOperationEvent event = new MatrixOperationEvent();
+        private long startNanos;
+        private long rowOperations;
+        private long flops;
+        private long allocations;
+        private int depth;
+        private int maxDepth;
+
+        Call(String operation, int rows, int cols, Call parent) {
+            this.operation = operation;
+            this.rows = rows;
+            this.cols = cols;
+            this.parent = parent;
+        }
+    }
+
+    /*
+        The totals for every call of one operation.
+
+        The latency histogram has one bucket per power
+        of two nanoseconds: bucket `b` counts the calls
+        that took between 2^(b-1) and 2^b - 1 nanoseconds.
+     */
+    public static class OperationStats {
+        public static final int NUM_BUCKETS = 64;
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong rowOperations = new AtomicLong();
+        private final AtomicLong flops = new AtomicLong();
+        private final AtomicLong allocations = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxRecursionDepth = new AtomicLong();
+        private final AtomicLongArray latencyHistogram = new AtomicLongArray(NUM_BUCKETS);
+
+        private void record(Call call, long elapsedNanos) {
+            this.calls.incrementAndGet();
+            this.rowOperations.addAndGet(call.rowOperations);
+            this.flops.addAndGet(call.flops);
+            this.allocations.addAndGet(call.allocations);
+            this.totalNanos.addAndGet(elapsedNanos);
+            this.maxRecursionDepth.accumulateAndGet(call.maxDepth, Math::max);
+
+            int bucket = NUM_BUCKETS - Long.numberOfLeadingZeros(Math.max(elapsedNanos, 0));
+            this.latencyHistogram.incrementAndGet(Math.min(bucket, NUM_BUCKETS - 1));
+        }
+
+        public long getCalls() {
+            return this.calls.get();
+        }
+
+        public long getRowOperations() {
+            return this.rowOperations.get();
+        }
+
+        public long getFlops() {
+            return this.flops.get();
+        }
+
+        public long getAllocations() {
+            return this.allocations.get();
+        }
+
+        public long getTotalNanos() {
+            return this.totalNanos.get();
+        }
+
+        public long getMaxRecursionDepth() {
+            return this.maxRecursionDepth.get();
+        }
+
+        public long[] getLatencyHistogram() {
+            long[] histogram = new long[NUM_BUCKETS];
+            for(int i=0; i < NUM_BUCKETS; i++) {
+                histogram[i] = this.latencyHistogram.get(i);
+            }
+            return histogram;
+        }
+
+        public String toString() {
+            return "calls=" + this.getCalls() +
+                   " rowOps=" + this.getRowOperations() +
+                   " flops=" + this.getFlops() +
+                   " allocations=" + this.getAllocations() +
+                   " maxDepth=" + this.getMaxRecursionDepth() +
+                   " totalNanos=" + this.getTotalNanos();
+        }
+    }
+
+    @Name("LinAlgCalculator.MatrixOperation")
+    @Label("Matrix Operation")
+    @Category("LinAlgCalculator")
+    static class MatrixOperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Rows")
+        int rows;
+
+        @Label("Columns")
+        int cols;
+
+        @Label("Row Operations")
+        long rowOperations;
+
+        @Label("Flops")
+        long flops;
+
+        @Label("Allocations")
+        long allocations;
+
+        @Label("Max Recursion Depth")
+        int maxRecursionDepth;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+    This class computes the LU factorization of
+    square matrices stored as column-major arrays
+    (see Matrix.toColumnMajor()) and solves systems
+    with it. It is used by Matrix.solve(),
+    Matrix.solveMixedPrecision(), Matrix.det() and
+    Matrix.inverse().
+
+    The factorization is P * A = L * U, found with
+    Gaussian elimination and partial pivoting. L and U
+    overwrite A: U is on and above the main diagonal,
+    and L (whose diagonal is all 1s) is below it.
+
+    There is a double and a float version of each
+    method. The float versions move half as much memory,
+    and are used for the mixed-precision solver.
+ */
+public class LU {
+
+    /*
+        Panels of at most this many columns are factored
+        column by column. Wider panels are split in two.
+     */
+    private static final int PANEL = 64;
+
+    /*
+        Factors the `n` x `n` matrix `a` in place and
+        returns the row swaps: row `k` was swapped with
+        row `pivots[k]` at step `k`.
+
+        The factorization is recursive (Toledo, 1997):
+        the left half of the columns is factored first,
+        then the right half is updated with it and
+        factored. Most of the work is in the update of
+        the bottom-right block, which is one matrix
+        product and goes through Strassen.multiply().
+
+        The loops are ordered so that the innermost
+        loop walks down a column.
+     */
+    static int[] factor(double[] a, int n) throws SingularMatrixException {
+        int[] pivots = new int[n];
+        LU.factorPanel(a, n, 0, n, pivots);
+        return pivots;
+    }
+
+    /*
+        Factors the panel of the `w` columns starting at
+        column `first`, from row `first` down, assuming
+        that the columns to the left of it are already
+        factored and that their updates were applied to it.
+
+        The row swaps are only applied to the columns of
+        the panel, the caller applies them to the rest.
+     */
+    private static void factorPanel(double[] a, int n, int first, int w, int[] pivots)
+            throws SingularMatrixException {
+        if (w <= PANEL) {
+            LU.factorColumns(a, n, first, w, pivots);
+            return;
+        }
+
+        int left = w / 2;
+        int right = w - left;
+        int mid = first + left;
+
+        LU.factorPanel(a, n, first, left, pivots);
+        LU.swapRows(a, n, first, mid, mid, first + w, pivots);
+
+        // A12 = L11^-1 * A12
+        LU.solveUnitLower(a, first * n + first, n, left, a, mid * n + first, n, right);
+
+        // A22 = A22 - A21 * A12
+        int rows = n - mid;
+        double[] a21 = LU.copyBlock(a, first * n + mid, n, rows, left);
+        double[] a12 = LU.copyBlock(a, mid * n + first, n, left, right);
+        double[] product = Strassen.multiply(a21, a12, rows, left, right);
+        for (int j = 0; j < right; j++) {
+            int colA = (mid + j) * n + mid;
+            int colP = j * rows;
+            for (int i = 0; i < rows; i++) {
+                a[colA + i] -= product[colP + i];
+            }
+        }
+
+        LU.factorPanel(a, n, mid, right, pivots);
+        LU.swapRows(a, n, mid, first + w, first, mid, pivots);
+    }
+
+    /*
+        Gaussian elimination with partial pivoting on the
+        `w` columns starting at column `first`, one column
+        at a time.
+     */
+    private static void factorColumns(double[] a, int n, int first, int w, int[] pivots)
+            throws SingularMatrixException {
+        int end = first + w;
+        for (int k = first; k < end; k++) {
+            int colK = k * n;
+
+            int p = k;
+            for (int i = k + 1; i < n; i++) {
+                if (Math.abs(a[colK + i]) > Math.abs(a[colK + p])) {
+                    p = i;
+                }
+            }
+            pivots[k] = p;
+
+            if (a[colK + p] == 0) {
+                throw new SingularMatrixException("Matrix is singular.");
+            }
+
+            if (p != k) {
+                for (int j = first; j < end; j++) {
+                    double temp = a[j * n + k];
+                    a[j * n + k] = a[j * n + p];
+                    a[j * n + p] = temp;
+                }
+            }
+
+            double pivot = a[colK + k];
+            for (int i = k + 1; i < n; i++) {
+                a[colK + i] /= pivot;
+            }
+
+            for (int j = k + 1; j < end; j++) {
+                int colJ = j * n;
+                double ukj = a[colJ + k];
+                if (ukj != 0) {
+                    for (int i = k + 1; i < n; i++) {
+                        a[colJ + i] -= a[colK + i] * ukj;
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+        Applies the row swaps of steps `from` to `to` - 1
+        to the columns `firstCol` to `lastCol` - 1.
+     */
+    private static void swapRows(double[] a, int n, int from, int to,
+                                 int firstCol, int lastCol, int[] pivots) {
+        for (int k = from; k < to; k++) {
+            int p = pivots[k];
+            if (p != k) {
+                for (int j = firstCol; j < lastCol; j++) {
+                    double temp = a[j * n + k];
+                    a[j * n + k] = a[j * n + p];
+                    a[j * n + p] = temp;
+                }
+            }
+        }
+    }
+
+    /*
+        Overwrites the `size` x `nrhs` block of `b` with
+        L^-1 * b, where L is the `size` x `size` block of
+        `l` below the diagonal, with 1s on the diagonal.
+        Each block is given by the offset of its top-left
+        element and the distance between its columns.
+     */
+    private static void solveUnitLower(double[] l, int lOff, int ldl, int size,
+                                       double[] b, int bOff, int ldb, int nrhs) {
+        for (int j = 0; j < nrhs; j++) {
+            int colB = bOff + j * ldb;
+            for (int k = 0; k < size; k++) {
+                double bk = b[colB + k];
+                if (bk != 0) {
+                    int colL = lOff + k * ldl;
+                    for (int i = k + 1; i < size; i++) {
+                        b[colB + i] -= l[colL + i] * bk;
+                    }
+                }
+            }
+        }
+    }
+
+    private static double[] copyBlock(double[] a, int off, int lda, int rows, int cols) {
+        double[] block = new double[rows * cols];
+        for (int j = 0; j < cols; j++) {
+            System.arraycopy(a, off + j * lda, block, j * rows, rows);
+        }
+        return block;
+    }
+
+    /*
+        Overwrites `b` with the solution of A * x = `b`,
+        where `lu` and `pivots` came from factor().
+     */
+    static void solve(double[] lu, int[] pivots, int n, double[] b) {
+        for (int k = 0; k < n; k++) {
+            int p = pivots[k];
+            if (p != k) {
+                double temp = b[k];
+                b[k] = b[p];
+                b[p] = temp;
+            }
+        }
+
+        // L * y = P * b, going down
+        for (int k = 0; k < n; k++) {
+            double bk = b[k];
+            if (bk != 0) {
+                for (int i = k + 1; i < n; i++) {
+                    b[i] -= lu[k * n + i] * bk;
+                }
+            }
+        }
+
+        // U * x = y, going up
+        for (int k = n - 1; k >= 0; k--) {
+            b[k] /= lu[k * n + k];
+            double bk = b[k];
+            if (bk != 0) {
+                for (int i = 0; i < k; i++) {
+                    b[i] -= lu[k * n + i] * bk;
+                }
+            }
+        }
+    }
+
+    /*
+        Returns the 1-norm of the `n` x `n` matrix `a`,
+        the largest sum of absolute values in a column.
+     */
+    static double norm(double[] a, int n) {
+        double norm = 0;
+        for (int col = 0; col < n; col++) {
+            double sum = 0;
+            for (int row = 0; row < n; row++) {
+                sum += Math.abs(a[col * n + row]);
+            }
+            norm = Math.max(norm, sum);
+        }
+        return norm;
+    }
+
+    /*
+        Throws a SingularMatrixException if a pivot on
+        the diagonal of `lu` (from factor(), or just a
+        triangular matrix) is 0 to working precision:
+
+        |u_kk| <= n * ulp(norm)
+
+        where `norm` is the 1-norm of A before it was
+        factored. factor() only fails on pivots that
+        are exactly 0, but rounding usually leaves a
+        pivot of the size of the rounding errors instead
+        (about 1e-15 for the 4x4 matrix of 1 to 16).
+     */
+    static void checkPivots(double[] lu, int n, double norm) throws SingularMatrixException {
+        double tolerance = n * Math.ulp(norm);
+        for (int k = 0; k < n; k++) {
+            if (Math.abs(lu[k * n + k]) <= tolerance) {
+                throw new SingularMatrixException("Matrix is singular.");
+            }
+        }
+    }
+
+    /*
+        Returns the determinant of A, where `lu` and
+        `pivots` came from factor(): the product of the
+        diagonal of U, with its sign flipped for every
+        row swap.
+     */
+    static double determinant(double[] lu, int[] pivots, int n) {
+        double det = 1;
+        for (int k = 0; k < n; k++) {
+            det *= lu[k * n + k];
+            if (pivots[k] != k) {
+                det = -det;
+            }
+        }
+        return det;
+    }
+
+    /*
+        Returns A^-1 (column-major), where `lu` and
+        `pivots` came from factor(). The columns of
+        P * I are solved with L and then with U.
+     */
+    static double[] invert(double[] lu, int[] pivots, int n) throws SingularMatrixException {
+        double[] x = new double[n * n];
+        for (int k = 0; k < n; k++) {
+            x[k * n + k] = 1;
+        }
+        LU.swapRows(x, n, 0, n, 0, n, pivots);
+        LU.solveUnitLower(lu, 0, n, n, x, 0, n, n);
+        Triangular.solveUpper(lu, n, x, n);
+        return x;
+    }
+
+    /*
+        The same as factor() above, in single precision,
+        one column at a time.
+     */
+    static int[] factor(float[] a, int n) throws SingularMatrixException {
+        int[] pivots = new int[n];
+        for (int k = 0; k < n; k++) {
+            int colK = k * n;
+
+            int p = k;
+            for (int i = k + 1; i < n; i++) {
+                if (Math.abs(a[colK + i]) > Math.abs(a[colK + p])) {
+                    p = i;
+                }
+            }
+            pivots[k] = p;
+
+            if (a[colK + p] == 0) {
+                throw new SingularMatrixException("Matrix is singular.");
+            }
+
+            if (p != k) {
+                for (int j = 0; j < n; j++) {
+                    float temp = a[j * n + k];
+                    a[j * n + k] = a[j * n + p];
+                    a[j * n + p] = temp;
+                }
+            }
+
+            float pivot = a[colK + k];
+            for (int i = k + 1; i < n; i++) {
+                a[colK + i] /= pivot;
+            }
+
+            for (int j = k + 1; j < n; j++) {
+                int colJ = j * n;
+                float ukj = a[colJ + k];
+                if (ukj != 0) {
+                    for (int i = k + 1; i < n; i++) {
+                        a[colJ + i] -= a[colK + i] * ukj;
+                    }
+                }
+            }
+        }
+        return pivots;
+    }
+
+    /*
+        The same as solve() above, in single precision.
+     */
+    static void solve(float[] lu, int[] pivots, int n, float[] b) {
+        for (int k = 0; k < n; k++) {
+            int p = pivots[k];
+            if (p != k) {
+                float temp = b[k];
+                b[k] = b[p];
+                b[p] = temp;
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            float bk = b[k];
+            if (bk != 0) {
+                for (int i = k + 1; i < n; i++) {
+                    b[i] -= lu[k * n + i] * bk;
+                }
+            }
+        }
+
+        for (int k = n - 1; k >= 0; k--) {
+            b[k] /= lu[k * n + k];
+            float bk = b[k];
+            if (bk != 0) {
+                for (int i = 0; i < k; i++) {
+                    b[i] -= lu[k * n + i] * bk;
+                }
+            }
+        }
+    }
+}
@@ -11,18 +11,26 @@ public class Matrix {
         OBJECT.
      */
     public Matrix() {
+        Instrumentation.allocations(1);
         this.matrix = new ArrayList<Vector>();
         this.rows = 0;
         this.cols = 0;
     }
 
+    /*
+        Every column of `matrix` is copied, so row
+        operations on the new Matrix do not change
+        `matrix`. Copies of an off-heap Matrix are
+        also off-heap.
+     */
     public Matrix(Matrix matrix) {
+        Instrumentation.allocations(1);
         this.matrix = new ArrayList<Vector>();
         this.rows = matrix.numRows();
         this.cols = 0;
 
-        for(int i=1; i<=matrix.rows; i++)
-            this.addColumn(matrix.getColumn(i));
+        for(int i=1; i<=matrix.numCols(); i++)
+            this.addColumn(new Vector(matrix.getColumn(i)));
     }
 
     /*
@@ -30,6 +38,7 @@ public class Matrix {
         in a proper "m x n" format.
      */
     public Matrix(double[][] otherMatrix) {
+        Instrumentation.allocations(1);
         this.matrix = new ArrayList<Vector>();
         this.rows = otherMatrix.length;
         this.cols = 0;
@@ -49,6 +58,72 @@ public class Matrix {
         }
     }
 
+    /*
+        Returns a `rows` x `cols` zero matrix whose
+        columns are off-heap Vectors (see Vector.offHeap()).
+
+        All of the row operations, rref(), det() and
+        inverse() work on this matrix the same way they
+        do on a regular one, and its elements never live
+        on the Java heap. Call release() when done with it.
+
+        det() and inverse() on matrices bigger than 3x3
+        still use O(n^2) doubles of heap scratch space for
+        the LU factorization (plain double[] arrays, which
+        are dropped when they return). Only the result of
+        inverse() is off-heap.
+     */
+    public static Matrix offHeap(int rows, int cols) {
+        Matrix offHeapMatrix = new Matrix();
+        for(int c = 0; c < cols; c++) {
+            offHeapMatrix.addColumn(Vector.offHeap(rows));
+        }
+        offHeapMatrix.rows = rows;
+        return offHeapMatrix;
+    }
+
+    public boolean isOffHeap() {
+        return this.cols > 0 && this.matrix.get(0).isOffHeap();
+    }
+
+    /*
+        Returns a `rows` x `cols` zero matrix whose
+        columns store their elements as floats (see
+        Vector.float32()), which takes half of the
+        memory of doubles.
+
+        Every operation works on this matrix, but the
+        row operations round their results to floats.
+        Use solveMixedPrecision() to solve systems with
+        it to double precision.
+     */
+    public static Matrix float32(int rows, int cols) {
+        Matrix floatMatrix = new Matrix();
+        for(int c = 0; c < cols; c++) {
+            floatMatrix.addColumn(Vector.float32(rows));
+        }
+        floatMatrix.rows = rows;
+        return floatMatrix;
+    }
+
+    public boolean isFloat32() {
+        return this.cols > 0 && this.matrix.get(0).isFloat32();
+    }
+
+    /*
+        Frees the off-heap memory of every column right
+        away (see Vector.release()) and leaves this as an
+        empty matrix.
+     */
+    public void release() {
+        for(Vector col : this.matrix) {
+            col.release();
+        }
+        this.matrix.clear();
+        this.rows = 0;
+        this.cols = 0;
+    }
+
     /*
         THE FOLLOWING METHODS INVOLVE ADDING
         AND REMOVING COLUMNS FROM THE
@@ -152,6 +227,8 @@ public class Matrix {
                 currCol.setElement(r2, temp);
             }
 
+            Instrumentation.rowOperation(0);
+
         }
     }
 
@@ -169,6 +246,7 @@ public class Matrix {
                 Vector currCol = this.matrix.get(i);
                 currCol.setElement(row, coefficient * currCol.getElement(row));
             }
+            Instrumentation.rowOperation(this.numCols());
         }
     }
 
@@ -216,6 +294,8 @@ public class Matrix {
                 Vector currCol = this.getColumn(i);
                 currCol.setElement(row1, currCol.getElement(row1) + otherRow.getElement(i));
             }
+            // One multiply and one add for every column
+            Instrumentation.rowOperation(2 * this.numCols());
         }
     }
 
@@ -248,6 +328,18 @@ public class Matrix {
         Repeat for the other rows.
      */
     public void rref() {
+        Instrumentation.Call call = Instrumentation.begin("rref", this);
+        try {
+            this.computeRref();
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    /*
+        The body of rref(), without the instrumentation.
+     */
+    private void computeRref() {
         for (int row = 1; row <= this.numRows() ; row++) {
             /*
                 Scale current row so that first element is
@@ -300,10 +392,22 @@ public class Matrix {
         square matrix.
 
         This method will find the deteminant recursively
-        using a helper method.
+        using a helper method for matrices up to 3x3,
+        and from the LU factorization for bigger ones.
      */
     public double det() throws NotSquareMatrixException {
+        Instrumentation.Call call = Instrumentation.begin("det", this);
+        try {
+            return this.computeDet();
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
 
+    /*
+        The body of det(), without the instrumentation.
+     */
+    private double computeDet() throws NotSquareMatrixException {
         /*
             Check if the matrix is square first.
          */
@@ -322,10 +426,31 @@ public class Matrix {
                 for(int col = 1; col <= this.numCols(); col++) {
                     diagTotal *= this.getColumn(col).getElement(col);
                 }
+                Instrumentation.flops(this.numCols());
                 return diagTotal;
-            } else {
+            } else if (this.numCols() <= 3) {
                 return detHelper(this);
             }
+
+            /*
+                The cofactor expansion in detHelper() takes
+                O(n!) time. The LU factorization takes O(n^3)
+                (less with Strassen for the big updates), and
+                the determinant is the product of the diagonal
+                of U, with the sign flipped for every row swap.
+
+                The factorization is done in an array of n^2
+                doubles on the heap, even for an off-heap matrix.
+             */
+            int n = this.numRows();
+            double[] lu = this.toColumnMajor();
+            Instrumentation.flops(2L * n * n * n / 3);
+            try {
+                int[] pivots = LU.factor(lu, n);
+                return LU.determinant(lu, pivots, n);
+            } catch (SingularMatrixException e) {
+                return 0;
+            }
         }
         /*
             If the matrix is not square, throw an
@@ -379,8 +504,9 @@ public class Matrix {
             itself.
         */
         if (m.numCols() == 1 && m.numRows() == 1) {
-            return this.getColumn(1).getElement(1);
+            return m.getColumn(1).getElement(1);
         } else if (m.numCols() == 2 && m.numRows() == 2) {
+            Instrumentation.flops(3);
             return (m.getColumn(1).getElement(1) * m.getColumn(2).getElement(2)) -
                     (m.getColumn(2).getElement(1) * m.getColumn(1).getElement(2));
         } else {
@@ -392,7 +518,7 @@ public class Matrix {
                 in each iteration that will be passed
                 to the next recursive call.
              */
-            int detTotal = 0;
+            double detTotal = 0;
 
             for (int col = 1; col <= m.numCols(); col++) {
                 /*
@@ -412,13 +538,18 @@ public class Matrix {
                     negative.
                  */
                 int sign = (col % 2 == 0) ? -1 : 1;
-                double coeff = this.getColumn(col).getElement(1);
+                double coeff = m.getColumn(col).getElement(1);
                 Matrix nextMatrix = new Matrix();
 
                 // Add columns before and after `col`
                 for(int currCol = 1; currCol <= m.numCols(); currCol++) {
                     if (currCol != col) {
-                        Vector newCol = new Vector(m.getColumn(currCol));
+                        /*
+                            The sub-matrices are only temporaries,
+                            so they are kept on the heap even if
+                            `m` is off-heap.
+                         */
+                        Vector newCol = new Vector(m.getColumn(currCol).getValuesArray());
                         // Remove first element in column
                         newCol.removeElement(1);
 
@@ -426,7 +557,12 @@ public class Matrix {
                     }
                 }
 
-                detTotal += (sign * coeff * detHelper(nextMatrix));
+                Instrumentation.enterRecursion();
+                double subDet = detHelper(nextMatrix);
+                Instrumentation.exitRecursion();
+
+                Instrumentation.flops(3);
+                detTotal += (sign * coeff * subDet);
             }
 
             return detTotal;
@@ -437,15 +573,17 @@ public class Matrix {
         This method finds the inverse of the
         current matrix.
 
-        This is currently done using a naive
-        algorithm that basically augments the
-        current matrix with the Identity Matrix,
-        finds the rref of the current matrix,
-        and replicates any row operations to the
-        Identity Matrix. After reaching rref
-        with the current matrix, the altered
-        Identity Matrix must be the inverse of
-        the current matrix.
+        This is done with the LU factorization of
+        the current matrix (see the LU class). If
+        that fails because the matrix is singular,
+        a naive algorithm is used instead, which
+        basically augments the current matrix with
+        the Identity Matrix, finds the rref of the
+        current matrix, and replicates any row
+        operations to the Identity Matrix. After
+        reaching rref with the current matrix, the
+        altered Identity Matrix must be the inverse
+        of the current matrix.
 
         It is assumed that the current matrix is
         invertible before this method is called.
@@ -460,10 +598,49 @@ public class Matrix {
         matrix.
      */
     public Matrix inverse() {
-        //Construct the Identity Matrix for the current matrix's dimensions
-        double[][] identity2D = new double[this.numRows()][this.numCols()];
-        for (int col = 0; col < this.numCols(); col++) {
-            identity2D[col][col] = 1;
+        Instrumentation.Call call = Instrumentation.begin("inverse", this);
+        try {
+            return this.computeInverse();
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    /*
+        Returns the inverse of the current matrix, the
+        same way inverse() does, but throws a
+        SingularMatrixException if the matrix is not
+        invertible instead of returning a meaningless
+        matrix.
+     */
+    public Matrix checkedInverse() throws NotSquareMatrixException, SingularMatrixException {
+        if (this.numRows() != this.numCols()) {
+            throw new NotSquareMatrixException("Inverses only valid for square matrices.");
+        }
+
+        Instrumentation.Call call = Instrumentation.begin("checkedInverse", this);
+        try {
+            return this.factoredInverse();
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    /*
+        The body of inverse(), without the instrumentation.
+     */
+    private Matrix computeInverse() {
+        /*
+            If the matrix is not invertible (or not square),
+            fall through to the Gauss-Jordan sweep below,
+            which is what was done before.
+         */
+        if (this.numRows() == this.numCols()) {
+            try {
+                return this.factoredInverse();
+            } catch (SingularMatrixException e) {
+                // Use the Gauss-Jordan sweep below
+            }
         }
 
         /*
@@ -474,15 +651,47 @@ public class Matrix {
             done on the augmented identity matrix.
 
             Therefore, this copy of the current matrix will be used.
+            It keeps the storage of the current matrix, so an
+            off-heap matrix gets an off-heap copy, which is freed
+            as soon as the sweep is done.
          */
         Matrix currCopy = new Matrix(this);
+        try {
+            return this.gaussJordanInverse(currCopy);
+        } finally {
+            currCopy.release();
+        }
+    }
+
+    /*
+        The Gauss-Jordan sweep of inverse(), done on
+        `currCopy`, a copy of the current matrix.
+     */
+    private Matrix gaussJordanInverse(Matrix currCopy) {
 
         /*
             Use the constructor that takes a 2-D
             array of doubles as a parameter to
             create an identity matrix to work with.
+
+            If the current matrix is off-heap, the
+            identity matrix (and so the inverse) is
+            kept off-heap too.
          */
-        Matrix identity = new Matrix(identity2D);
+        Matrix identity;
+        if (this.isOffHeap()) {
+            identity = Matrix.offHeap(this.numRows(), this.numCols());
+            for (int col = 1; col <= this.numCols(); col++) {
+                identity.getColumn(col).setElement(col, 1);
+            }
+        } else {
+            //Construct the Identity Matrix for the current matrix's dimensions
+            double[][] identity2D = new double[this.numRows()][this.numCols()];
+            for (int col = 0; col < this.numCols(); col++) {
+                identity2D[col][col] = 1;
+            }
+            identity = new Matrix(identity2D);
+        }
 
         /*
             THE FOLLOWING IS THE SAME ALGORITHM USED
@@ -522,6 +731,499 @@ public class Matrix {
         return identity;
     }
 
+    /*
+        Returns the inverse of the current (square)
+        matrix using a factorization.
+
+        The inverse of a triangular matrix is found
+        directly by substitution, which takes about a
+        third of the work of the Gauss-Jordan sweep in
+        computeInverse().
+
+        Other matrices are inverted with the LU
+        factorization (with partial pivoting), which
+        only needs column-major arrays and uses
+        Strassen for the big updates.
+
+        The column-major arrays are on the heap, even
+        for an off-heap matrix: this takes two arrays of
+        n^2 doubles (only one for a triangular matrix)
+        until the inverse is copied into its columns.
+     */
+    private Matrix factoredInverse() throws SingularMatrixException {
+        int n = this.numRows();
+        double[] values = this.toColumnMajor();
+
+        boolean isUpper = this.isUpperTriangular();
+        boolean isTriangular = isUpper || this.isLowerTriangular();
+        int[] pivots = this.checkedFactor(values, n, isTriangular);
+        if (isTriangular) {
+            if (isUpper) {
+                Triangular.invertUpper(values, n);
+            } else {
+                Triangular.invertLower(values, n);
+            }
+            Instrumentation.flops((long) n * n * n / 3);
+            return this.sameStorageFromColumnMajor(values, n, n);
+        }
+
+        double[] inverse = LU.invert(values, pivots, n);
+        Instrumentation.flops(4L * n * n * n / 3);
+        return this.sameStorageFromColumnMajor(inverse, n, n);
+    }
+
+    /*
+        Throws a SingularMatrixException if the current
+        (square) matrix is singular to working precision
+        (see LU.checkPivots()). This is the test used by
+        both checkedInverse() and isInvertible().
+
+        `values` is the current matrix, column-major. A
+        triangular matrix is its own U, so it is left as
+        it is and null is returned. Otherwise `values` is
+        overwritten with the LU factorization, and its
+        row swaps are returned.
+     */
+    private int[] checkedFactor(double[] values, int n, boolean isTriangular) throws SingularMatrixException {
+        double norm = LU.norm(values, n);
+        int[] pivots = null;
+        if (!isTriangular) {
+            pivots = LU.factor(values, n);
+            Instrumentation.flops(2L * n * n * n / 3);
+        }
+        LU.checkPivots(values, n, norm);
+        return pivots;
+    }
+
+    public class DimensionMismatchException extends Exception {
+        DimensionMismatchException() { }
+
+        DimensionMismatchException(String str) {
+            super(str);
+        }
+    }
+
+    /*
+        THE FOLLOWING METHODS MULTIPLY
+        MATRICES AND CONVERT THE MATRIX
+        TO AND FROM A PLAIN ARRAY OF DOUBLES
+        FOR THE MULTIPLICATION KERNELS.
+     */
+
+    /*
+        Returns the product of the current matrix
+        and `other` (this * other) as a new matrix.
+        Neither of the two matrices is altered.
+
+        The number of columns of the current matrix
+        must be equal to the number of rows of `other`.
+
+        Small products use the classical algorithm.
+        Large products use the Strassen-Winograd
+        algorithm, see the Strassen class for how to
+        tune the size at which it takes over.
+     */
+    public Matrix multiply(Matrix other) throws DimensionMismatchException {
+        if (this.numCols() != other.numRows()) {
+            throw new DimensionMismatchException("The number of columns of the first matrix must " +
+                                                 "equal the number of rows of the second matrix.");
+        }
+
+        Instrumentation.Call call = Instrumentation.begin("multiply", this);
+        try {
+            double[] product = Strassen.multiply(this.toColumnMajor(), other.toColumnMajor(),
+                                                 this.numRows(), this.numCols(), other.numCols());
+            Instrumentation.flops(2L * this.numRows() * this.numCols() * other.numCols());
+
+            return Matrix.fromColumnMajor(product, this.numRows(), other.numCols());
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    /*
+        Returns the current matrix raised to the `k`th
+        power as a new matrix, using binary exponentiation
+        (see MatrixFunctions.pow()). The current matrix
+        is not altered.
+
+        A^0 is the Identity Matrix. For a negative `k`,
+        the inverse (found with the LU factorization) is
+        raised to the power -`k`, and a SingularMatrixException
+        is thrown if the current matrix is singular (the same
+        test as checkedInverse()).
+     */
+    public Matrix pow(int k) throws NotSquareMatrixException, SingularMatrixException {
+        if (this.numRows() != this.numCols()) {
+            throw new NotSquareMatrixException("Powers only valid for square matrices.");
+        }
+
+        int n = this.numRows();
+        if (k == 0) {
+            double[] identity = new double[n * n];
+            for (int i = 0; i < n; i++) {
+                identity[i * n + i] = 1;
+            }
+            return this.sameStorageFromColumnMajor(identity, n, n);
+        }
+
+        // -Integer.MIN_VALUE does not fit in an int
+        long power = Math.abs((long) k);
+
+        Instrumentation.Call call = Instrumentation.begin("pow", this);
+        try {
+            double[] base = this.toColumnMajor();
+            if (k < 0) {
+                int[] pivots = this.checkedFactor(base, n, false);
+                base = LU.invert(base, pivots, n);
+                Instrumentation.flops(4L * n * n * n / 3);
+            }
+
+            double[] result = MatrixFunctions.pow(base, n, power);
+            int products = 63 - Long.numberOfLeadingZeros(power) + Long.bitCount(power) - 1;
+            Instrumentation.flops(2L * products * n * n * n);
+
+            return this.sameStorageFromColumnMajor(result, n, n);
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    /*
+        Returns the matrix exponential e^A of the current
+        matrix A as a new matrix, using scaling and squaring
+        with a Pade approximant (see MatrixFunctions.exp()).
+        The current matrix is not altered.
+
+        Throws an ArithmeticException if an element is
+        infinite or NaN, and a SingularMatrixException if
+        the denominator of the Pade approximant turns out
+        to be singular (which does not happen in exact
+        arithmetic for finite elements).
+     */
+    public Matrix exp() throws NotSquareMatrixException, SingularMatrixException {
+        if (this.numRows() != this.numCols()) {
+            throw new NotSquareMatrixException("Exponentials only valid for square matrices.");
+        }
+
+        Instrumentation.Call call = Instrumentation.begin("exp", this);
+        try {
+            int n = this.numRows();
+            double[] result = MatrixFunctions.exp(this.toColumnMajor(), n);
+
+            return this.sameStorageFromColumnMajor(result, n, n);
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    /*
+        Returns the elements of the current matrix
+        in one array, column after column. The element
+        in row `r` and column `c` is at index
+        (c-1) * numRows() + (r-1).
+     */
+    double[] toColumnMajor() {
+        double[] values = new double[this.numRows() * this.numCols()];
+        for (int col = 1; col <= this.numCols(); col++) {
+            Vector currCol = this.getColumn(col);
+            for (int row = 1; row <= this.numRows(); row++) {
+                values[(col - 1) * this.numRows() + (row - 1)] = currCol.getElement(row);
+            }
+        }
+        return values;
+    }
+
+    /*
+        The same as fromColumnMajor(), but the new
+        matrix stores its elements the same way as
+        the current matrix (off-heap, float32 or as
+        regular Vectors).
+     */
+    private Matrix sameStorageFromColumnMajor(double[] values, int rows, int cols) {
+        Matrix result;
+        if (this.isOffHeap()) {
+            result = Matrix.offHeap(rows, cols);
+        } else if (this.isFloat32()) {
+            result = Matrix.float32(rows, cols);
+        } else {
+            return Matrix.fromColumnMajor(values, rows, cols);
+        }
+
+        for (int col = 1; col <= cols; col++) {
+            Vector currCol = result.getColumn(col);
+            for (int row = 1; row <= rows; row++) {
+                currCol.setElement(row, values[(col - 1) * rows + (row - 1)]);
+            }
+        }
+        return result;
+    }
+
+    /*
+        The reverse of toColumnMajor().
+     */
+    static Matrix fromColumnMajor(double[] values, int rows, int cols) {
+        Matrix result = new Matrix();
+        for (int col = 0; col < cols; col++) {
+            Vector currCol = new Vector(rows);
+            for (int row = 0; row < rows; row++) {
+                currCol.setElement(row + 1, values[col * rows + row]);
+            }
+            result.addColumn(currCol);
+        }
+        result.rows = rows;
+        return result;
+    }
+
+    /*
+        THE FOLLOWING METHODS APPROXIMATE
+        THE MOST IMPORTANT STRUCTURE OF
+        LARGE MATRICES WITH RANDOMIZATION.
+     */
+
+    /*
+        Returns a matrix with `k` orthonormal columns
+        whose span approximates the column space of the
+        current matrix (the span of its top `k` singular
+        vectors). See RandomizedSVD for the algorithm.
+
+        The current matrix is not altered.
+     */
+    public Matrix randomizedRange(int k) {
+        this.checkRank(k);
+        double[] q = RandomizedSVD.range(this.toColumnMajor(), this.numRows(), this.numCols(), k,
+                                         RandomizedSVD.DEFAULT_POWER_ITERATIONS, System.nanoTime());
+        return Matrix.fromColumnMajor(q, this.numRows(), k);
+    }
+
+    /*
+        Returns an approximation of the top `k` singular
+        values and vectors of the current matrix, using
+        the default oversampling and power iterations.
+     */
+    public RandomizedSVD randomizedSVD(int k) {
+        return this.randomizedSVD(k, RandomizedSVD.DEFAULT_OVERSAMPLING,
+                                  RandomizedSVD.DEFAULT_POWER_ITERATIONS, System.nanoTime());
+    }
+
+    /*
+        More `oversampling` (extra random columns) and
+        `powerIterations` make the approximation more
+        accurate and take more time. The same `seed`
+        always gives the same result.
+     */
+    public RandomizedSVD randomizedSVD(int k, int oversampling, int powerIterations, long seed) {
+        this.checkRank(k);
+
+        Instrumentation.Call call = Instrumentation.begin("randomizedSVD", this);
+        try {
+            return RandomizedSVD.compute(this.toColumnMajor(), this.numRows(), this.numCols(), k,
+                                         Math.max(oversampling, 0), Math.max(powerIterations, 0), seed);
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    private void checkRank(int k) {
+        if (k < 1 || k > Math.min(this.numRows(), this.numCols())) {
+            throw new IllegalArgumentException("k must be between 1 and the smaller dimension of the matrix.");
+        }
+    }
+
+    /*
+        THE FOLLOWING METHODS SOLVE THE
+        SYSTEM OF EQUATIONS A * x = b WHERE
+        A IS THE CURRENT MATRIX.
+     */
+
+    /*
+        The largest number of iterative refinement steps
+        that solveMixedPrecision() takes before it gives up
+        and solves the system in double precision instead.
+     */
+    private static int MAX_REFINEMENTS = 30;
+
+    /*
+        Returns the solution `x` of A * x = `b`, using
+        the LU factorization of the current matrix.
+        Neither the current matrix nor `b` is altered.
+     */
+    public Vector solve(Vector b) throws NotSquareMatrixException, DimensionMismatchException,
+                                         SingularMatrixException {
+        this.checkSystem(b);
+
+        Instrumentation.Call call = Instrumentation.begin("solve", this);
+        try {
+            int n = this.numRows();
+
+            /*
+                Triangular systems only need forward or
+                back substitution, which takes O(n^2) time.
+             */
+            boolean isUpper = this.isUpperTriangular();
+            if (isUpper || this.isLowerTriangular()) {
+                double[] values = this.toColumnMajor();
+                double[] x = b.getValuesArray();
+                if (isUpper) {
+                    Triangular.solveUpper(values, n, x, 1);
+                } else {
+                    Triangular.solveLower(values, n, x, 1);
+                }
+                Instrumentation.flops((long) n * n);
+                return new Vector(x);
+            }
+
+            double[] lu = this.toColumnMajor();
+            int[] pivots = LU.factor(lu, n);
+            double[] x = b.getValuesArray();
+            LU.solve(lu, pivots, n, x);
+            Instrumentation.flops(2L * n * n * n / 3 + 2L * n * n);
+
+            return new Vector(x);
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    /*
+        Returns the solution `x` of A * x = `b` to double
+        precision, while doing the expensive O(n^3) part
+        in single precision.
+
+        The algorithm is as follows:
+
+        Find the LU factorization of the current matrix
+        rounded to floats, and use it to find a first
+        (single precision) solution `x`.
+
+        Find the residual r = b - A * x in double precision.
+        Solve A * d = r with the float LU factorization,
+        and add the correction `d` to `x`. Every step makes
+        `x` more accurate, until `d` is too small to change
+        `x` in double precision.
+
+        If the corrections stop shrinking (the matrix is
+        too ill-conditioned for single precision) before
+        `x` is accurate to within EPSILON, the system is
+        solved in double precision with solve() instead.
+
+        The same is done if an element of the matrix does
+        not fit in a float (it is larger than
+        Float.MAX_VALUE, or so small that it rounds to 0),
+        or if the factorization, a correction or `x` ever
+        overflows to infinity or NaN.
+     */
+    public Vector solveMixedPrecision(Vector b) throws NotSquareMatrixException, DimensionMismatchException,
+                                                      SingularMatrixException {
+        this.checkSystem(b);
+
+        /*
+            Triangular systems take O(n^2) time to solve
+            in double precision, so there is nothing to
+            gain from single precision.
+         */
+        if (this.isTriangular()) {
+            return this.solve(b);
+        }
+
+        Instrumentation.Call call = Instrumentation.begin("solveMixedPrecision", this);
+        try {
+            int n = this.numRows();
+
+            float[] lu = new float[n * n];
+            for (int col = 1; col <= n; col++) {
+                Vector currCol = this.getColumn(col);
+                for (int row = 1; row <= n; row++) {
+                    double value = currCol.getElement(row);
+                    float rounded = (float) value;
+                    if (!(Math.abs(value) <= Float.MAX_VALUE) || (rounded == 0 && value != 0)) {
+                        return this.solve(b);
+                    }
+                    lu[(col - 1) * n + (row - 1)] = rounded;
+                }
+            }
+
+            int[] pivots;
+            try {
+                pivots = LU.factor(lu, n);
+            } catch (SingularMatrixException e) {
+                // The matrix may only be singular after rounding it to floats
+                return this.solve(b);
+            }
+            Instrumentation.flops(2L * n * n * n / 3);
+            for (int i = 0; i < n * n; i++) {
+                if (!Float.isFinite(lu[i])) {
+                    return this.solve(b);
+                }
+            }
+
+            double[] rhs = b.getValuesArray();
+            double[] residual = rhs.clone();
+            double[] x = new double[n];
+            float[] correction = new float[n];
+            double lastCorrection = Double.POSITIVE_INFINITY;
+
+            for (int step = 0; step < Matrix.MAX_REFINEMENTS; step++) {
+                for (int i = 0; i < n; i++) {
+                    correction[i] = (float) residual[i];
+                }
+                LU.solve(lu, pivots, n, correction);
+
+                double normX = 0;
+                double normCorrection = 0;
+                for (int i = 0; i < n; i++) {
+                    x[i] += correction[i];
+                    normX = Math.max(normX, Math.abs(x[i]));
+                    normCorrection = Math.max(normCorrection, Math.abs(correction[i]));
+                }
+
+                // Infinity or NaN in a correction also makes the norms non-finite
+                if (!Double.isFinite(normX) || !Double.isFinite(normCorrection)) {
+                    break;
+                }
+                if (normCorrection <= Math.ulp(normX)) {
+                    return new Vector(x);
+                }
+                if (normCorrection > lastCorrection / 2) {
+                    if (normCorrection <= Matrix.EPSILON * normX) {
+                        return new Vector(x);
+                    }
+                    break;
+                }
+                lastCorrection = normCorrection;
+
+                // r = b - A * x, in double precision
+                System.arraycopy(rhs, 0, residual, 0, n);
+                for (int col = 1; col <= n; col++) {
+                    Vector currCol = this.getColumn(col);
+                    double xCol = x[col - 1];
+                    for (int row = 1; row <= n; row++) {
+                        residual[row - 1] -= currCol.getElement(row) * xCol;
+                    }
+                }
+                Instrumentation.flops(4L * n * n);
+            }
+
+            return this.solve(b);
+        } finally {
+            Instrumentation.end(call);
+        }
+    }
+
+    /*
+        Throws the appropriate exception if the current
+        matrix is not square or `b` does not have one
+        element per row of the current matrix.
+     */
+    private void checkSystem(Vector b) throws NotSquareMatrixException, DimensionMismatchException {
+        if (this.numRows() != this.numCols()) {
+            throw new NotSquareMatrixException("Only square systems can be solved.");
+        }
+        if (b.getSize() != this.numRows()) {
+            throw new DimensionMismatchException("The vector must have one element per row of the matrix.");
+        }
+    }
+
     /*
         THE FOLLOWING METHODS CHECK TO SEE
         IF THE MATRIX CONTAINS CERTAIN
@@ -536,70 +1238,78 @@ public class Matrix {
         false otherwise.
      */
     public boolean isTriangular() {
-        //Only square matrices can be triangular.
-        if(this.numCols() != this.numRows())
-            return false;
-
+        return this.isUpperTriangular() || this.isLowerTriangular();
+    }
 
-        /*
-            In each column, start from the "col"th
-            position, all elements below this position
-            must be 0 to be upper triangular.
+    /*
+        In each column, starting right below the
+        "col"th position, all elements must be 0 for
+        the matrix to be upper triangular.
 
-            Don't need to check for final column.
-         */
+        Only square matrices can be triangular.
+     */
+    public boolean isUpperTriangular() {
+        if(this.numCols() != this.numRows())
+            return false;
 
-        boolean isUpper = true;
-        boolean isLower = true;
         for (int col = 1; col < this.numCols(); col++) {
-            if(isUpper || isLower) {
-                //Check for upper triangular first
-                int upperRow = col + 1;
-                while (upperRow <= this.getColumn(col).getSize() &&
-                        this.getColumn(col).getElement(upperRow) == 0) {
-                    upperRow++;
-                }
+            Vector currCol = this.getColumn(col);
+            for (int row = col + 1; row <= this.numRows(); row++) {
+                if (currCol.getElement(row) != 0)
+                    return false;
+            }
+        }
+        return true;
+    }
 
-                if (upperRow <= this.getColumn(col).getSize() &&
-                        this.getColumn(col).getElement(upperRow) != 0) {
-                    isUpper = false;
-                }
+    /*
+        In each column, all elements above the
+        "col"th position must be 0 for the matrix
+        to be lower triangular.
 
-                //Check for lower triangular
-                int lowerRow = 1;
-                while (lowerRow < col &&
-                       this.getColumn(col).getElement(lowerRow) == 0) {
-                    lowerRow++;
-                }
+        Only square matrices can be triangular.
+     */
+    public boolean isLowerTriangular() {
+        if(this.numCols() != this.numRows())
+            return false;
 
-                if (lowerRow < col &&
-                    this.getColumn(col).getElement(lowerRow) != 0) {
-                    isLower = false;
-                }
+        for (int col = 2; col <= this.numCols(); col++) {
+            Vector currCol = this.getColumn(col);
+            for (int row = 1; row < col; row++) {
+                if (currCol.getElement(row) != 0)
+                    return false;
             }
         }
-
-        return (isUpper || isLower);
+        return true;
     }
+
     /*
         The Invertible Matrix Theorem describes
         all of the conditions in which a matrix
         is invertible.
 
         This method first ensures that the current
-        matrix is a square matrix. Then, if the
-        determinant of the matrix is not equal to 0,
-        the current matrix is invertible.
+        matrix is a square matrix. Then, if no pivot
+        of its LU factorization is 0 to working
+        precision (the same test that checkedInverse()
+        uses), the current matrix is invertible.
+        Checking that det() is exactly 0 would miss
+        most singular matrices, since rounding errors
+        leave a tiny determinant instead.
 
         If either of these conditions are not met,
         the current matrix is not invertible and false
         is returned.
      */
     public boolean isInvertible() throws NotSquareMatrixException {
-        if (this.numRows() == this.numCols() &&
-            this.det() != 0) {
+        if (this.numRows() != this.numCols()) {
+            return false;
+        }
+
+        try {
+            this.checkedFactor(this.toColumnMajor(), this.numRows(), this.isTriangular());
             return true;
-        } else {
+        } catch (SingularMatrixException e) {
             return false;
         }
     }
@@ -0,0 +1,192 @@
+/*
+    This class computes powers and the exponential of
+    square matrices stored as column-major arrays
+    (see Matrix.toColumnMajor()). It is used by
+    Matrix.pow() and Matrix.exp().
+
+    Every product goes through one Strassen.Multiplier,
+    and the intermediate results are kept in a fixed set
+    of buffers that are allocated before the first product,
+    so no memory is allocated per step.
+ */
+public class MatrixFunctions {
+
+    /*
+        The coefficients of the degree 13 Pade approximant
+        of e^x, and the largest 1-norm of A for which it is
+        accurate to double precision (Higham, 2005).
+     */
+    private static final double[] PADE_13 = {
+        64764752532480000.0, 32382376266240000.0, 7771770303897600.0,
+        1187353796428800.0, 129060195264000.0, 10559470521600.0,
+        670442572800.0, 33522128640.0, 1323241920.0,
+        40840800.0, 960960.0, 16380.0, 182.0, 1.0
+    };
+    private static final double THETA_13 = 5.371920351148152;
+
+    /*
+        Returns A^k for k >= 1 using binary exponentiation:
+
+        Go through the bits of `k` from the lowest. Every
+        step squares `base` (A, A^2, A^4, ...), and the
+        powers of the bits that are 1 are multiplied into
+        `result`. This takes about 2 * log2(k) products
+        instead of k - 1.
+
+        `result` and `base` swap arrays with `scratch`
+        after every product (ping-pong), so three arrays
+        are enough for all of the steps.
+     */
+    static double[] pow(double[] a, int n, long k) {
+        Strassen.Multiplier multiplier = new Strassen.Multiplier(n, n, n);
+        double[] base = a.clone();
+        double[] result = new double[n * n];
+        double[] scratch = new double[n * n];
+        boolean resultIsSet = false;
+
+        while (k > 0) {
+            if ((k & 1) == 1) {
+                if (!resultIsSet) {
+                    System.arraycopy(base, 0, result, 0, n * n);
+                    resultIsSet = true;
+                } else {
+                    multiplier.multiply(result, base, scratch);
+                    double[] temp = result;
+                    result = scratch;
+                    scratch = temp;
+                }
+            }
+
+            k >>= 1;
+            if (k > 0) {
+                multiplier.multiply(base, base, scratch);
+                double[] temp = base;
+                base = scratch;
+                scratch = temp;
+            }
+        }
+
+        return result;
+    }
+
+    /*
+        Returns e^A using scaling and squaring:
+
+        e^A = (e^(A / 2^s))^(2^s)
+
+        Pick `s` so that A / 2^s is small enough for the
+        degree 13 Pade approximant r(X) = Q(X)^-1 * P(X)
+        to be accurate, find r(A / 2^s), and square it `s`
+        times.
+
+        P and Q share their even and odd parts, so only
+        six products are needed for them:
+
+        U = X * (X6 * (b13 X6 + b11 X4 + b9 X2) + b7 X6 + b5 X4 + b3 X2 + b1 I)
+        V = X6 * (b12 X6 + b10 X4 + b8 X2) + b6 X6 + b4 X4 + b2 X2 + b0 I
+        P = V + U, Q = V - U
+
+        Throws an ArithmeticException if an element of A
+        is infinite or NaN (or the norm of A overflows),
+        since `s` could not be found then.
+     */
+    static double[] exp(double[] a, int n) throws SingularMatrixException {
+        int size = n * n;
+        Strassen.Multiplier multiplier = new Strassen.Multiplier(n, n, n);
+
+        // The 1-norm is the largest sum of absolute values in a column
+        double norm = 0;
+        for (int col = 0; col < n; col++) {
+            double sum = 0;
+            for (int row = 0; row < n; row++) {
+                sum += Math.abs(a[col * n + row]);
+            }
+            norm = Math.max(norm, sum);
+        }
+        if (!Double.isFinite(norm)) {
+            throw new ArithmeticException("Matrix exponential is not defined for non-finite elements.");
+        }
+        int s = norm > THETA_13 ? (int) Math.ceil(Math.log(norm / THETA_13) / Math.log(2)) : 0;
+
+        double[] x = a.clone();
+        double scale = Math.scalb(1.0, -s);
+        for (int i = 0; i < size; i++) {
+            x[i] *= scale;
+        }
+
+        double[] x2 = new double[size];
+        double[] x4 = new double[size];
+        double[] x6 = new double[size];
+        double[] u = new double[size];
+        double[] v = new double[size];
+        double[] sum = new double[size];
+        multiplier.multiply(x, x, x2);
+        multiplier.multiply(x2, x2, x4);
+        multiplier.multiply(x4, x2, x6);
+
+        double[] b = PADE_13;
+
+        // U = X * (X6 * (b13 X6 + b11 X4 + b9 X2) + b7 X6 + b5 X4 + b3 X2 + b1 I)
+        MatrixFunctions.combine(sum, x6, b[13], x4, b[11], x2, b[9], 0, n);
+        multiplier.multiply(x6, sum, u);
+        MatrixFunctions.addCombination(u, x6, b[7], x4, b[5], x2, b[3], b[1], n);
+        multiplier.multiply(x, u, sum);
+        System.arraycopy(sum, 0, u, 0, size);
+
+        // V = X6 * (b12 X6 + b10 X4 + b8 X2) + b6 X6 + b4 X4 + b2 X2 + b0 I
+        MatrixFunctions.combine(sum, x6, b[12], x4, b[10], x2, b[8], 0, n);
+        multiplier.multiply(x6, sum, v);
+        MatrixFunctions.addCombination(v, x6, b[6], x4, b[4], x2, b[2], b[0], n);
+
+        // Solve Q * R = P, column by column, with P in `x2` and Q in `x4`
+        for (int i = 0; i < size; i++) {
+            x2[i] = v[i] + u[i];
+            x4[i] = v[i] - u[i];
+        }
+        int[] pivots = LU.factor(x4, n);
+        double[] column = new double[n];
+        for (int col = 0; col < n; col++) {
+            System.arraycopy(x2, col * n, column, 0, n);
+            LU.solve(x4, pivots, n, column);
+            System.arraycopy(column, 0, x6, col * n, n);
+        }
+
+        // Undo the scaling by squaring `s` times, ping-ponging between two arrays
+        double[] result = x6;
+        double[] scratch = x;
+        for (int i = 0; i < s; i++) {
+            multiplier.multiply(result, result, scratch);
+            double[] temp = result;
+            result = scratch;
+            scratch = temp;
+        }
+
+        return result;
+    }
+
+    /*
+        z = c1 * x1 + c2 * x2 + c3 * x3 + d * I
+     */
+    private static void combine(double[] z, double[] x1, double c1, double[] x2, double c2,
+                                double[] x3, double c3, double d, int n) {
+        for (int i = 0; i < n * n; i++) {
+            z[i] = c1 * x1[i] + c2 * x2[i] + c3 * x3[i];
+        }
+        for (int i = 0; i < n; i++) {
+            z[i * n + i] += d;
+        }
+    }
+
+    /*
+        z = z + c1 * x1 + c2 * x2 + c3 * x3 + d * I
+     */
+    private static void addCombination(double[] z, double[] x1, double c1, double[] x2, double c2,
+                                       double[] x3, double c3, double d, int n) {
+        for (int i = 0; i < n * n; i++) {
+            z[i] += c1 * x1[i] + c2 * x2[i] + c3 * x3[i];
+        }
+        for (int i = 0; i < n; i++) {
+            z[i * n + i] += d;
+        }
+    }
+}
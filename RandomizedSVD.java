@@ -0,0 +1,281 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/*
+    This class finds an approximation of the top `k`
+    singular values and vectors of a large `m` x `n`
+    matrix A, so that A is close to U * S * V^T, where
+    U is `m` x `k`, S is a `k` x `k` diagonal matrix
+    of the singular values (largest first), and V is
+    `n` x `k`. It is created by Matrix.randomizedSVD().
+
+    The algorithm is as follows:
+
+    Multiply A by a random `n` x `l` matrix (with
+    l = k + oversampling), whose columns are then
+    random combinations of the columns of A. The
+    column space of the result is very close to the
+    span of the top `k` singular vectors of A. Make
+    its columns orthonormal (QR) to get Q.
+
+    To sharpen Q, do a few "power iterations", which
+    multiply by A^T and then A again (making the
+    columns orthonormal after every product).
+
+    Then B = Q^T * A is only `l` x `n`, and its exact
+    SVD gives the approximate SVD of A.
+
+    This takes O(m * n * l) time instead of the O(n^3)
+    of an exact decomposition. The products with A,
+    which are most of the work, are split across the
+    common ForkJoinPool.
+ */
+public class RandomizedSVD {
+    public static final int DEFAULT_OVERSAMPLING = 10;
+    public static final int DEFAULT_POWER_ITERATIONS = 2;
+
+    /*
+        Rows of A handled by one task in the
+        parallel products.
+     */
+    private static final int ROW_BLOCK = 512;
+
+    private Matrix u;
+    private Vector singularValues;
+    private Matrix v;
+
+    private RandomizedSVD(Matrix u, Vector singularValues, Matrix v) {
+        this.u = u;
+        this.singularValues = singularValues;
+        this.v = v;
+    }
+
+    public Matrix getU() {
+        return this.u;
+    }
+
+    /*
+        The `k` singular values, largest first.
+     */
+    public Vector getSingularValues() {
+        return this.singularValues;
+    }
+
+    public Matrix getV() {
+        return this.v;
+    }
+
+    /*
+        Returns an `m` x `l` matrix with orthonormal
+        columns whose span approximates the column space
+        of the `m` x `n` matrix `a` (column-major).
+     */
+    static double[] range(double[] a, int m, int n, int l, int powerIterations, long seed) {
+        Random random = new Random(seed);
+        double[] omega = new double[n * l];
+        for (int i = 0; i < omega.length; i++) {
+            omega[i] = random.nextGaussian();
+        }
+
+        double[] q = RandomizedSVD.multiply(a, m, n, omega, l);
+        RandomizedSVD.orthonormalize(q, m, l);
+
+        for (int i = 0; i < powerIterations; i++) {
+            double[] z = RandomizedSVD.multiplyTransposed(a, m, n, q, l);
+            RandomizedSVD.orthonormalize(z, n, l);
+            q = RandomizedSVD.multiply(a, m, n, z, l);
+            RandomizedSVD.orthonormalize(q, m, l);
+        }
+
+        return q;
+    }
+
+    static RandomizedSVD compute(double[] a, int m, int n, int k,
+                                 int oversampling, int powerIterations, long seed) {
+        int l = Math.min(k + oversampling, Math.min(m, n));
+        double[] q = RandomizedSVD.range(a, m, n, l, powerIterations, seed);
+
+        /*
+            B = Q^T * A is stored as its transpose
+            Bt = A^T * Q, which is `n` x `l`.
+
+            One-sided Jacobi makes the columns of Bt
+            orthogonal with rotations W, so Bt * W = V * S
+            and B = W * S * V^T. The left singular vectors
+            of A are then Q * W.
+         */
+        double[] bt = RandomizedSVD.multiplyTransposed(a, m, n, q, l);
+        double[] w = new double[l * l];
+        for (int i = 0; i < l; i++) {
+            w[i * l + i] = 1;
+        }
+        RandomizedSVD.jacobi(bt, n, w, l);
+
+        // Sort the columns by their norms, the singular values
+        double[] norms = new double[l];
+        for (int c = 0; c < l; c++) {
+            norms[c] = Math.sqrt(RandomizedSVD.dot(bt, c * n, bt, c * n, n));
+        }
+        Integer[] order = new Integer[l];
+        for (int c = 0; c < l; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, (x, y) -> Double.compare(norms[y], norms[x]));
+
+        double[] uValues = new double[m * k];
+        double[] vValues = new double[n * k];
+        double[] sValues = new double[k];
+        for (int i = 0; i < k; i++) {
+            int c = order[i];
+            sValues[i] = norms[c];
+            if (norms[c] > 0) {
+                for (int r = 0; r < n; r++) {
+                    vValues[i * n + r] = bt[c * n + r] / norms[c];
+                }
+            }
+            // Column i of U is Q times column c of W
+            for (int j = 0; j < l; j++) {
+                double wjc = w[c * l + j];
+                for (int r = 0; r < m; r++) {
+                    uValues[i * m + r] += q[j * m + r] * wjc;
+                }
+            }
+        }
+
+        return new RandomizedSVD(Matrix.fromColumnMajor(uValues, m, k),
+                                 new Vector(sValues),
+                                 Matrix.fromColumnMajor(vValues, n, k));
+    }
+
+    /*
+        Returns A * X, where A is `m` x `n` and X is
+        `n` x `l`. Each task computes a block of rows,
+        so A is only read once.
+     */
+    private static double[] multiply(double[] a, int m, int n, double[] x, int l) {
+        double[] y = new double[m * l];
+        int blocks = (m + ROW_BLOCK - 1) / ROW_BLOCK;
+
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            int first = block * ROW_BLOCK;
+            int last = Math.min(m, first + ROW_BLOCK);
+            for (int p = 0; p < n; p++) {
+                int colA = p * m;
+                for (int c = 0; c < l; c++) {
+                    double xpc = x[c * n + p];
+                    int colY = c * m;
+                    for (int r = first; r < last; r++) {
+                        y[colY + r] += a[colA + r] * xpc;
+                    }
+                }
+            }
+        });
+        return y;
+    }
+
+    /*
+        Returns A^T * Q, where A is `m` x `n` and Q is
+        `m` x `l`, without forming A^T. Each element is
+        the dot product of a column of A and a column
+        of Q, and each task computes one row of the result.
+     */
+    private static double[] multiplyTransposed(double[] a, int m, int n, double[] q, int l) {
+        double[] z = new double[n * l];
+
+        IntStream.range(0, n).parallel().forEach(j -> {
+            for (int c = 0; c < l; c++) {
+                z[c * n + j] = RandomizedSVD.dot(a, j * m, q, c * m, m);
+            }
+        });
+        return z;
+    }
+
+    private static double dot(double[] x, int xOff, double[] y, int yOff, int length) {
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += x[xOff + i] * y[yOff + i];
+        }
+        return sum;
+    }
+
+    /*
+        Makes the `cols` columns of the `rows` x `cols`
+        matrix `x` orthonormal in place with Gram-Schmidt
+        (the QR factorization, keeping only Q).
+
+        Each column is orthogonalized against the ones
+        before it twice, which keeps it orthogonal in
+        floating point. A column that is (numerically)
+        in the span of the ones before it is set to 0.
+     */
+    private static void orthonormalize(double[] x, int rows, int cols) {
+        for (int j = 0; j < cols; j++) {
+            int colJ = j * rows;
+            double before = Math.sqrt(RandomizedSVD.dot(x, colJ, x, colJ, rows));
+
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < j; i++) {
+                    int colI = i * rows;
+                    double r = RandomizedSVD.dot(x, colI, x, colJ, rows);
+                    for (int t = 0; t < rows; t++) {
+                        x[colJ + t] -= r * x[colI + t];
+                    }
+                }
+            }
+
+            double norm = Math.sqrt(RandomizedSVD.dot(x, colJ, x, colJ, rows));
+            double scale = (norm > 1e-12 * before && norm > 0) ? 1 / norm : 0;
+            for (int t = 0; t < rows; t++) {
+                x[colJ + t] *= scale;
+            }
+        }
+    }
+
+    /*
+        One-sided Jacobi: rotates pairs of columns of the
+        `rows` x `cols` matrix `g` until every pair is
+        orthogonal, and applies the same rotations to
+        the `cols` x `cols` matrix `w`.
+     */
+    private static void jacobi(double[] g, int rows, double[] w, int cols) {
+        double tolerance = 1e-15;
+        boolean rotated = true;
+
+        for (int sweep = 0; sweep < 60 && rotated; sweep++) {
+            rotated = false;
+            for (int p = 0; p < cols - 1; p++) {
+                for (int q = p + 1; q < cols; q++) {
+                    double alpha = RandomizedSVD.dot(g, p * rows, g, p * rows, rows);
+                    double beta = RandomizedSVD.dot(g, q * rows, g, q * rows, rows);
+                    double gamma = RandomizedSVD.dot(g, p * rows, g, q * rows, rows);
+
+                    if (Math.abs(gamma) <= tolerance * Math.sqrt(alpha * beta)) {
+                        continue;
+                    }
+                    rotated = true;
+
+                    double zeta = (beta - alpha) / (2 * gamma);
+                    double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+                    if (zeta == 0) {
+                        t = 1;
+                    }
+                    double c = 1 / Math.sqrt(1 + t * t);
+                    double s = c * t;
+
+                    RandomizedSVD.rotate(g, p * rows, q * rows, rows, c, s);
+                    RandomizedSVD.rotate(w, p * cols, q * cols, cols, c, s);
+                }
+            }
+        }
+    }
+
+    private static void rotate(double[] x, int colP, int colQ, int length, double c, double s) {
+        for (int i = 0; i < length; i++) {
+            double xp = x[colP + i];
+            double xq = x[colQ + i];
+            x[colP + i] = c * xp - s * xq;
+            x[colQ + i] = s * xp + c * xq;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+/*
+    Thrown by the solvers when the matrix
+    of the system has no inverse, so the
+    system does not have a unique solution.
+ */
+public class SingularMatrixException extends Exception {
+    SingularMatrixException() { }
+
+    SingularMatrixException(String str) {
+        super(str);
+    }
+}
@@ -0,0 +1,487 @@
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/*
+    This class multiplies matrices that are stored
+    as column-major arrays of doubles. It is used by
+    Matrix.multiply().
+
+    Small products use the classical O(n^3) kernel.
+    Once the matrices are at least `crossover` long
+    in every dimension, the Strassen-Winograd algorithm
+    is used instead if it takes fewer flops (see
+    levels()), which splits each matrix into four
+    blocks and only needs 7 block products (instead
+    of 8) per level of recursion.
+
+    The 7 block products on the top levels of the
+    recursion are computed in parallel on the common
+    ForkJoinPool.
+
+    All of the scratch buffers that the recursion
+    needs are allocated up front (see Workspace)
+    instead of in every recursive call.
+ */
+public class Strassen {
+    private static volatile int crossover = 128;
+    private static volatile int parallelDepth = 1;
+
+    /*
+        Products whose dimensions are all smaller than
+        `crossover` are done with the classical kernel.
+        This is also the size at which the Strassen
+        recursion stops.
+     */
+    public static int getCrossover() {
+        return Strassen.crossover;
+    }
+
+    public static void setCrossover(int crossover) {
+        if (crossover >= 2) {
+            Strassen.crossover = crossover;
+        }
+    }
+
+    /*
+        The number of levels of the recursion whose
+        7 block products are computed in parallel.
+        0 makes the whole recursion sequential.
+
+        Every parallel level needs a separate set of
+        scratch buffers for each of its 7 products,
+        so every extra level multiplies the scratch
+        memory of the levels below it by 7/4. The
+        sequential levels all share one set.
+     */
+    public static int getParallelDepth() {
+        return Strassen.parallelDepth;
+    }
+
+    public static void setParallelDepth(int parallelDepth) {
+        if (parallelDepth >= 0) {
+            Strassen.parallelDepth = parallelDepth;
+        }
+    }
+
+    /*
+        Returns C = A * B where A is `m` x `k` and B
+        is `k` x `n`, all stored column-major.
+     */
+    static double[] multiply(double[] a, double[] b, int m, int k, int n) {
+        double[] c = new double[m * n];
+        new Multiplier(m, k, n).multiply(a, b, c);
+        return c;
+    }
+
+    /*
+        Returns the number of levels of Strassen-Winograd
+        that take the fewest flops for an `m` x `k` times
+        `k` x `n` product, or 0 for the classical kernel.
+
+        Every level halves each dimension. The recursion
+        stops before any block gets smaller than
+        `crossover`, and each dimension is padded on its
+        own (see padded()), so a long and thin product
+        is not padded to a big square.
+     */
+    static int levels(int m, int k, int n, int crossover) {
+        int maxLevels = 0;
+        while ((Math.min(m, Math.min(k, n)) >> maxLevels) >= crossover) {
+            maxLevels++;
+        }
+
+        int best = 0;
+        double bestCost = 2.0 * m * k * n;
+        for(int levels = 1; levels <= maxLevels; levels++) {
+            double cost = Strassen.cost(Strassen.padded(m, levels), Strassen.padded(k, levels),
+                                        Strassen.padded(n, levels), levels);
+            if (cost < bestCost) {
+                best = levels;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /*
+        The smallest size that is at least `size` and
+        can be halved `levels` times.
+     */
+    static int padded(int size, int levels) {
+        return ((size + (1 << levels) - 1) >> levels) << levels;
+    }
+
+    /*
+        The flops of `levels` levels of Strassen-Winograd:
+        7 products of half the size, plus 4 additions of
+        blocks of A, 4 of blocks of B and 7 of blocks of C.
+     */
+    private static double cost(int m, int k, int n, int levels) {
+        if (levels == 0) {
+            return 2.0 * m * k * n;
+        }
+        int mh = m / 2, kh = k / 2, nh = n / 2;
+        return 7 * Strassen.cost(mh, kh, nh, levels - 1)
+               + 4.0 * mh * kh + 4.0 * kh * nh + 7.0 * mh * nh;
+    }
+
+    /*
+        Multiplies `m` x `k` matrices by `k` x `n` matrices
+        over and over without allocating anything after
+        it is created: the padded copies of the inputs
+        (if any dimension needs padding) and the Strassen
+        workspace are kept and reused for every product.
+
+        This is for algorithms that take many products
+        of the same size in a row, like Matrix.pow().
+     */
+    static class Multiplier {
+        private final int m, k, n;
+        private final int levels;
+        private final int pm, pk, pn;
+        private final double[] paddedA;
+        private final double[] paddedB;
+        private final double[] paddedC;
+        private final Workspace workspace;
+
+        /*
+            `crossover` and `parallelDepth` are read once
+            here, so changing them later does not affect
+            a Multiplier that already exists.
+         */
+        Multiplier(int m, int k, int n) {
+            int crossover = Strassen.crossover;
+            int parallelDepth = Strassen.parallelDepth;
+
+            this.m = m;
+            this.k = k;
+            this.n = n;
+            this.levels = Strassen.levels(m, k, n, crossover);
+            this.pm = Strassen.padded(m, this.levels);
+            this.pk = Strassen.padded(k, this.levels);
+            this.pn = Strassen.padded(n, this.levels);
+
+            boolean padM = this.pm != m, padK = this.pk != k, padN = this.pn != n;
+            this.paddedA = padM || padK ? new double[this.pm * this.pk] : null;
+            this.paddedB = padK || padN ? new double[this.pk * this.pn] : null;
+            this.paddedC = padM || padN ? new double[this.pm * this.pn] : null;
+            this.workspace = this.levels == 0 ? null
+                    : new Workspace(this.pm, this.pk, this.pn, this.levels, parallelDepth);
+        }
+
+        /*
+            Overwrites `c` with A * B. `c` must not be
+            the same array as `a` or `b`.
+         */
+        void multiply(double[] a, double[] b, double[] c) {
+            if (this.workspace == null) {
+                Arrays.fill(c, 0, this.m * this.n, 0);
+                Strassen.classical(a, 0, this.m, b, 0, this.k, c, 0, this.m, this.m, this.k, this.n);
+                return;
+            }
+
+            // The padding stays 0, only the top-left block is copied
+            double[] x = Strassen.copyInto(a, this.m, this.k, this.paddedA, this.pm);
+            double[] y = Strassen.copyInto(b, this.k, this.n, this.paddedB, this.pk);
+            double[] z = this.paddedC == null ? c : this.paddedC;
+
+            new BlockProduct(x, 0, this.pm, y, 0, this.pk, z, 0, this.pm,
+                             this.pm, this.pk, this.pn, this.levels, this.workspace).invoke();
+
+            if (this.paddedC != null) {
+                for(int col = 0; col < this.n; col++) {
+                    System.arraycopy(this.paddedC, col * this.pm, c, col * this.m, this.m);
+                }
+            }
+        }
+    }
+
+    /*
+        Copies the `rows` x `cols` matrix `x` into the top-left
+        corner of `padded` (whose columns are `ld` long) and
+        returns it, or returns `x` itself if `padded` is null.
+     */
+    private static double[] copyInto(double[] x, int rows, int cols, double[] padded, int ld) {
+        if (padded == null) {
+            return x;
+        }
+        for(int col = 0; col < cols; col++) {
+            System.arraycopy(x, col * rows, padded, col * ld, rows);
+        }
+        return padded;
+    }
+
+    /*
+        C += A * B for an `m` x `k` block of A and a `k` x `n`
+        block of B. Each block is given by its array, the
+        offset of its top-left element and the distance
+        between its columns (the "leading dimension").
+
+        The loops are ordered so that the innermost loop
+        walks down a column of A and of C.
+     */
+    static void classical(double[] a, int aOff, int lda,
+                          double[] b, int bOff, int ldb,
+                          double[] c, int cOff, int ldc,
+                          int m, int k, int n) {
+        for(int j = 0; j < n; j++) {
+            int cCol = cOff + j * ldc;
+            for(int p = 0; p < k; p++) {
+                double bpj = b[bOff + j * ldb + p];
+                if (bpj != 0) {
+                    int aCol = aOff + p * lda;
+                    for(int i = 0; i < m; i++) {
+                        c[cCol + i] += a[aCol + i] * bpj;
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+        z = x + sign * y for `rows` x `cols` blocks.
+     */
+    private static void add(double[] x, int xOff, int ldx,
+                            double[] y, int yOff, int ldy,
+                            double[] z, int zOff, int ldz,
+                            int rows, int cols, double sign) {
+        for(int j = 0; j < cols; j++) {
+            int xCol = xOff + j * ldx;
+            int yCol = yOff + j * ldy;
+            int zCol = zOff + j * ldz;
+            for(int i = 0; i < rows; i++) {
+                z[zCol + i] = x[xCol + i] + sign * y[yCol + i];
+            }
+        }
+    }
+
+    /*
+        The scratch buffers for one block product of an
+        `m` x `k` block and a `k` x `n` block, split
+        `levels` more times. The top `parallelLevels`
+        of those levels are parallel.
+
+        A sequential level only needs two temporaries:
+        `x` holds the sums of blocks of A (and later
+        M1), and `y` the sums of blocks of B. The other
+        products are written straight into the blocks
+        of C. All 7 of its products share one workspace
+        for the level below, so the whole recursion
+        needs about (2/3) n^2 extra doubles for n x n
+        matrices.
+
+        A parallel level computes all 7 products at once,
+        so it keeps the 4 sums of blocks of A in `s`, the
+        4 sums of blocks of B in `t`, the 3 products that
+        do not fit in C in `p`, and one workspace per
+        product for the level below.
+
+        BlockProduct decides whether a level is parallel
+        from its workspace, so the two always agree.
+     */
+    private static class Workspace {
+        private final double[] x, y;
+        private final double[][] s, t, p;
+        private final Workspace[] children;
+
+        Workspace(int m, int k, int n, int levels, int parallelLevels) {
+            int mh = m / 2, kh = k / 2, nh = n / 2;
+
+            if (parallelLevels > 0) {
+                this.x = null;
+                this.y = null;
+                this.s = new double[4][mh * kh];
+                this.t = new double[4][kh * nh];
+                this.p = new double[3][mh * nh];
+                this.children = new Workspace[7];
+                if (levels > 1) {
+                    for(int i = 0; i < 7; i++) {
+                        this.children[i] = new Workspace(mh, kh, nh, levels - 1, parallelLevels - 1);
+                    }
+                }
+            } else {
+                this.x = new double[mh * Math.max(kh, nh)];
+                this.y = new double[kh * nh];
+                this.s = null;
+                this.t = null;
+                this.p = null;
+                Workspace child = levels > 1 ? new Workspace(mh, kh, nh, levels - 1, 0) : null;
+                this.children = new Workspace[] { child, child, child, child, child, child, child };
+            }
+        }
+    }
+
+    /*
+        C = A * B for an `m` x `k` block of A and a `k` x `n`
+        block of B, using `levels` levels of the
+        Strassen-Winograd schedule:
+
+        S1 = A21 + A22   T1 = B12 - B11
+        S2 = S1 - A11    T2 = B22 - T1
+        S3 = A11 - A21   T3 = B22 - B12
+        S4 = A12 - S2    T4 = T2 - B21
+
+        M1 = A11 * B11   M5 = S1 * T1
+        M2 = A12 * B21   M6 = S2 * T2
+        M3 = S4 * B22    M7 = S3 * T3
+        M4 = A22 * T4
+
+        C11 = M1 + M2
+        C12 = M1 + M6 + M5 + M3
+        C21 = M1 + M6 + M7 - M4
+        C22 = M1 + M6 + M7 + M5
+
+        `m`, `k` and `n` must be divisible by 2^`levels`.
+     */
+    private static class BlockProduct extends RecursiveAction {
+        private final double[] a, b, c;
+        private final int aOff, lda, bOff, ldb, cOff, ldc;
+        private final int m, k, n, levels;
+        private final Workspace workspace;
+
+        BlockProduct(double[] a, int aOff, int lda,
+                     double[] b, int bOff, int ldb,
+                     double[] c, int cOff, int ldc,
+                     int m, int k, int n, int levels, Workspace workspace) {
+            this.a = a;
+            this.aOff = aOff;
+            this.lda = lda;
+            this.b = b;
+            this.bOff = bOff;
+            this.ldb = ldb;
+            this.c = c;
+            this.cOff = cOff;
+            this.ldc = ldc;
+            this.m = m;
+            this.k = k;
+            this.n = n;
+            this.levels = levels;
+            this.workspace = workspace;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.levels == 0) {
+                for(int j = 0; j < this.n; j++) {
+                    Arrays.fill(this.c, this.cOff + j * this.ldc,
+                                this.cOff + j * this.ldc + this.m, 0);
+                }
+                Strassen.classical(this.a, this.aOff, this.lda, this.b, this.bOff, this.ldb,
+                                   this.c, this.cOff, this.ldc, this.m, this.k, this.n);
+                return;
+            }
+
+            // The workspace was built for either a parallel or a sequential level
+            if (this.workspace.s != null) {
+                this.computeParallel();
+            } else {
+                this.computeSequential();
+            }
+        }
+
+        /*
+            The schedule of Boyer, Dumas, Pernet and Zhou
+            (2009), which overwrites C with the products
+            in an order that only needs the two temporaries
+            X and Y of the workspace.
+         */
+        private void computeSequential() {
+            int mh = this.m / 2, kh = this.k / 2, nh = this.n / 2;
+            int lda = this.lda, ldb = this.ldb, ldc = this.ldc;
+            int a11 = this.aOff, a21 = a11 + mh, a12 = a11 + kh * lda, a22 = a12 + mh;
+            int b11 = this.bOff, b21 = b11 + kh, b12 = b11 + nh * ldb, b22 = b12 + kh;
+            int c11 = this.cOff, c21 = c11 + mh, c12 = c11 + nh * ldc, c22 = c12 + mh;
+            double[] a = this.a, b = this.b, c = this.c;
+            double[] x = this.workspace.x;
+            double[] y = this.workspace.y;
+
+            Strassen.add(a, a11, lda, a, a21, lda, x, 0, mh, mh, kh, -1);         // X = S3
+            Strassen.add(b, b22, ldb, b, b12, ldb, y, 0, kh, kh, nh, -1);         // Y = T3
+            this.product(x, 0, mh, y, 0, kh, c, c21, ldc, 6);                     // C21 = M7
+            Strassen.add(a, a21, lda, a, a22, lda, x, 0, mh, mh, kh, 1);          // X = S1
+            Strassen.add(b, b12, ldb, b, b11, ldb, y, 0, kh, kh, nh, -1);         // Y = T1
+            this.product(x, 0, mh, y, 0, kh, c, c22, ldc, 4);                     // C22 = M5
+            Strassen.add(x, 0, mh, a, a11, lda, x, 0, mh, mh, kh, -1);            // X = S2
+            Strassen.add(b, b22, ldb, y, 0, kh, y, 0, kh, kh, nh, -1);            // Y = T2
+            this.product(x, 0, mh, y, 0, kh, c, c12, ldc, 5);                     // C12 = M6
+            Strassen.add(a, a12, lda, x, 0, mh, x, 0, mh, mh, kh, -1);            // X = S4
+            this.product(x, 0, mh, b, b22, ldb, c, c11, ldc, 2);                  // C11 = M3
+            this.product(a, a11, lda, b, b11, ldb, x, 0, mh, 0);                  // X = M1
+            Strassen.add(x, 0, mh, c, c12, ldc, c, c12, ldc, mh, nh, 1);          // C12 = M1 + M6
+            Strassen.add(c, c12, ldc, c, c21, ldc, c, c21, ldc, mh, nh, 1);       // C21 = M1 + M6 + M7
+            Strassen.add(c, c12, ldc, c, c22, ldc, c, c12, ldc, mh, nh, 1);       // C12 = M1 + M6 + M5
+            Strassen.add(c, c21, ldc, c, c22, ldc, c, c22, ldc, mh, nh, 1);       // C22 (done)
+            Strassen.add(c, c12, ldc, c, c11, ldc, c, c12, ldc, mh, nh, 1);       // C12 (done)
+            Strassen.add(y, 0, kh, b, b21, ldb, y, 0, kh, kh, nh, -1);            // Y = T4
+            this.product(a, a22, lda, y, 0, kh, c, c11, ldc, 3);                  // C11 = M4
+            Strassen.add(c, c21, ldc, c, c11, ldc, c, c21, ldc, mh, nh, -1);      // C21 (done)
+            this.product(a, a12, lda, b, b21, ldb, c, c11, ldc, 1);               // C11 = M2
+            Strassen.add(x, 0, mh, c, c11, ldc, c, c11, ldc, mh, nh, 1);          // C11 (done)
+        }
+
+        /*
+            Computes the 7 products at the same time. M2 to M5
+            are written into the blocks of C, and the other
+            three into the workspace until they are combined.
+         */
+        private void computeParallel() {
+            int mh = this.m / 2, kh = this.k / 2, nh = this.n / 2;
+            int lda = this.lda, ldb = this.ldb, ldc = this.ldc;
+            int a11 = this.aOff, a21 = a11 + mh, a12 = a11 + kh * lda, a22 = a12 + mh;
+            int b11 = this.bOff, b21 = b11 + kh, b12 = b11 + nh * ldb, b22 = b12 + kh;
+            int c11 = this.cOff, c21 = c11 + mh, c12 = c11 + nh * ldc, c22 = c12 + mh;
+            double[] a = this.a, b = this.b, c = this.c;
+            double[][] s = this.workspace.s;
+            double[][] t = this.workspace.t;
+            double[][] p = this.workspace.p;
+
+            Strassen.add(a, a21, lda, a, a22, lda, s[0], 0, mh, mh, kh, 1);
+            Strassen.add(s[0], 0, mh, a, a11, lda, s[1], 0, mh, mh, kh, -1);
+            Strassen.add(a, a11, lda, a, a21, lda, s[2], 0, mh, mh, kh, -1);
+            Strassen.add(a, a12, lda, s[1], 0, mh, s[3], 0, mh, mh, kh, -1);
+
+            Strassen.add(b, b12, ldb, b, b11, ldb, t[0], 0, kh, kh, nh, -1);
+            Strassen.add(b, b22, ldb, t[0], 0, kh, t[1], 0, kh, kh, nh, -1);
+            Strassen.add(b, b22, ldb, b, b12, ldb, t[2], 0, kh, kh, nh, -1);
+            Strassen.add(t[1], 0, kh, b, b21, ldb, t[3], 0, kh, kh, nh, -1);
+
+            RecursiveAction.invokeAll(
+                this.task(a, a11, lda, b, b11, ldb, p[0], 0, mh, 0),
+                this.task(a, a12, lda, b, b21, ldb, c, c11, ldc, 1),
+                this.task(s[3], 0, mh, b, b22, ldb, c, c12, ldc, 2),
+                this.task(a, a22, lda, t[3], 0, kh, c, c21, ldc, 3),
+                this.task(s[0], 0, mh, t[0], 0, kh, c, c22, ldc, 4),
+                this.task(s[1], 0, mh, t[1], 0, kh, p[1], 0, mh, 5),
+                this.task(s[2], 0, mh, t[2], 0, kh, p[2], 0, mh, 6)
+            );
+
+            for(int j = 0; j < nh; j++) {
+                for(int i = 0; i < mh; i++) {
+                    int x = j * mh + i;
+                    int y = j * ldc + i;
+                    double u2 = p[0][x] + p[1][x];
+                    double u3 = u2 + p[2][x];
+                    double m5 = c[c22 + y];
+                    c[c11 + y] += p[0][x];
+                    c[c12 + y] += u2 + m5;
+                    c[c21 + y] = u3 - c[c21 + y];
+                    c[c22 + y] = u3 + m5;
+                }
+            }
+        }
+
+        private void product(double[] x, int xOff, int ldx,
+                             double[] y, int yOff, int ldy,
+                             double[] z, int zOff, int ldz, int index) {
+            this.task(x, xOff, ldx, y, yOff, ldy, z, zOff, ldz, index).compute();
+        }
+
+        private BlockProduct task(double[] x, int xOff, int ldx,
+                                  double[] y, int yOff, int ldy,
+                                  double[] z, int zOff, int ldz, int index) {
+            return new BlockProduct(x, xOff, ldx, y, yOff, ldy, z, zOff, ldz,
+                                    this.m / 2, this.k / 2, this.n / 2, this.levels - 1,
+                                    this.workspace.children[index]);
+        }
+    }
+}
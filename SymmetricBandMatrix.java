@@ -0,0 +1,239 @@
+/*
+    A symmetric `n` x `n` matrix that can only have
+    nonzero elements within `k` diagonals of the
+    main diagonal.
+
+    Since the element in row `r` and column `c` is the
+    same as the one in row `c` and column `r`, only the
+    main diagonal and the `k` diagonals below it are
+    stored, which takes O(n * k) memory.
+
+    solve() and det() use the Cholesky factorization
+    L * L^T, which takes O(n * k^2) time and does not
+    need any extra memory for row swaps.
+
+    Like Matrix and Vector, rows and columns are
+    numbered starting at 1.
+ */
+public class SymmetricBandMatrix {
+    private int n;
+    private int k;
+
+    /*
+        The element in row `r` and column `c` (0-based,
+        with r >= c) is at (r - c) + c * (k + 1).
+     */
+    private double[] band;
+
+    /*
+        The Cholesky factor L, stored the same way as
+        `band`. It is computed by the first solve() or
+        det() and thrown away by set().
+     */
+    private double[] cholesky;
+
+    /*
+        Initializes an `n` x `n` zero matrix with `k`
+        diagonals on either side of the main diagonal.
+     */
+    public SymmetricBandMatrix(int n, int k) {
+        this.n = n;
+        this.k = k;
+        this.band = new double[(k + 1) * n];
+    }
+
+    /*
+        Copies the main diagonal of `m` and the `k`
+        diagonals below it. The diagonals above it
+        are assumed to mirror them, and everything
+        outside of the band is assumed to be 0.
+     */
+    public static SymmetricBandMatrix fromMatrix(Matrix m, int k) throws Matrix.NotSquareMatrixException {
+        if (m.numRows() != m.numCols()) {
+            throw m.new NotSquareMatrixException("Symmetric band matrices must be square.");
+        }
+
+        SymmetricBandMatrix symmetric = new SymmetricBandMatrix(m.numRows(), k);
+        for (int col = 1; col <= m.numCols(); col++) {
+            Vector currCol = m.getColumn(col);
+            for (int row = col; row <= Math.min(m.numRows(), col + k); row++) {
+                symmetric.set(row, col, currCol.getElement(row));
+            }
+        }
+        return symmetric;
+    }
+
+    public Matrix toMatrix() {
+        double[] values = new double[this.n * this.n];
+        for (int c = 0; c < this.n; c++) {
+            for (int r = c; r <= Math.min(this.n - 1, c + this.k); r++) {
+                double value = this.band[this.index(r, c)];
+                values[c * this.n + r] = value;
+                values[r * this.n + c] = value;
+            }
+        }
+        return Matrix.fromColumnMajor(values, this.n, this.n);
+    }
+
+    /*
+        Returns the same matrix as a BandMatrix with
+        `k` diagonals below and above the main diagonal.
+     */
+    public BandMatrix toBandMatrix() {
+        BandMatrix general = new BandMatrix(this.n, this.k, this.k);
+        for (int c = 1; c <= this.n; c++) {
+            for (int r = c; r <= Math.min(this.n, c + this.k); r++) {
+                general.set(r, c, this.get(r, c));
+                general.set(c, r, this.get(r, c));
+            }
+        }
+        return general;
+    }
+
+    public int size() {
+        return this.n;
+    }
+
+    public int bandwidth() {
+        return this.k;
+    }
+
+    /*
+        0-based position of the element in row `r`
+        and column `c` (0-based, r >= c) in `band`.
+     */
+    private int index(int r, int c) {
+        return (r - c) + c * (this.k + 1);
+    }
+
+    public double get(int row, int col) {
+        int r = Math.max(row, col);
+        int c = Math.min(row, col);
+        if (c >= 1 && r <= this.n && r - c <= this.k) {
+            return this.band[this.index(r - 1, c - 1)];
+        }
+        return 0;
+    }
+
+    /*
+        Sets both the element in row `row` and column
+        `col` and the one in row `col` and column `row`.
+        Elements outside of the band can not be set.
+     */
+    public void set(int row, int col, double value) {
+        int r = Math.max(row, col);
+        int c = Math.min(row, col);
+        if (c >= 1 && r <= this.n && r - c <= this.k) {
+            this.band[this.index(r - 1, c - 1)] = value;
+            this.cholesky = null;
+        }
+    }
+
+    /*
+        Factors the matrix into L * L^T, where L is lower
+        triangular with `k` diagonals below its main
+        diagonal.
+
+        Returns false if the matrix is not positive
+        definite, in which case there is no such L.
+     */
+    private boolean factor() {
+        if (this.cholesky != null) {
+            return true;
+        }
+
+        double[] l = new double[this.band.length];
+        for (int j = 0; j < this.n; j++) {
+            int firstCol = Math.max(0, j - this.k);
+
+            double d = this.band[this.index(j, j)];
+            for (int p = firstCol; p < j; p++) {
+                d -= l[this.index(j, p)] * l[this.index(j, p)];
+            }
+            if (d <= 0) {
+                return false;
+            }
+            double diag = Math.sqrt(d);
+            l[this.index(j, j)] = diag;
+
+            for (int i = j + 1; i <= Math.min(this.n - 1, j + this.k); i++) {
+                double sum = this.band[this.index(i, j)];
+                for (int p = Math.max(0, i - this.k); p < j; p++) {
+                    sum -= l[this.index(i, p)] * l[this.index(j, p)];
+                }
+                l[this.index(i, j)] = sum / diag;
+            }
+        }
+
+        this.cholesky = l;
+        return true;
+    }
+
+    /*
+        Returns the solution `x` of the system A * x = `b`
+        where A is the current matrix. `b` is not altered.
+
+        Solves L * y = b going down and then L^T * x = y
+        going up. If the matrix is not positive definite,
+        the system is solved as a BandMatrix instead.
+     */
+    public double[] solve(double[] b) throws SingularMatrixException, Matrix.DimensionMismatchException {
+        this.checkSize(b);
+        if (!this.factor()) {
+            return this.toBandMatrix().solve(b);
+        }
+
+        double[] x = b.clone();
+        for (int j = 0; j < this.n; j++) {
+            x[j] /= this.cholesky[this.index(j, j)];
+            for (int i = j + 1; i <= Math.min(this.n - 1, j + this.k); i++) {
+                x[i] -= this.cholesky[this.index(i, j)] * x[j];
+            }
+        }
+        for (int j = this.n - 1; j >= 0; j--) {
+            for (int i = j + 1; i <= Math.min(this.n - 1, j + this.k); i++) {
+                x[j] -= this.cholesky[this.index(i, j)] * x[i];
+            }
+            x[j] /= this.cholesky[this.index(j, j)];
+        }
+
+        return x;
+    }
+
+    public Vector solve(Vector b) throws SingularMatrixException, Matrix.DimensionMismatchException {
+        return new Vector(this.solve(b.getValuesArray()));
+    }
+
+    /*
+        Throws a DimensionMismatchException unless `b`
+        has one element per row of the current matrix.
+        Matrix.DimensionMismatchException is an inner
+        class, so it needs an (empty) Matrix to create it.
+     */
+    private void checkSize(double[] b) throws Matrix.DimensionMismatchException {
+        if (b.length != this.n) {
+            throw new Matrix().new DimensionMismatchException(
+                    "The vector must have one element per row of the matrix.");
+        }
+    }
+
+    /*
+        det(L * L^T) is the square of the product of
+        the diagonal of L.
+     */
+    public double det() {
+        if (!this.factor()) {
+            return this.toBandMatrix().det();
+        }
+
+        double total = 1;
+        for (int j = 0; j < this.n; j++) {
+            total *= this.cholesky[this.index(j, j)];
+        }
+        return total * total;
+    }
+
+    public String toString() {
+        return this.toMatrix().toString();
+    }
+}
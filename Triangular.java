@@ -0,0 +1,158 @@
+/*
+    This class solves systems and finds inverses of
+    triangular matrices stored as column-major arrays
+    (see Matrix.toColumnMajor()). It is used by
+    Matrix.inverse() and Matrix.solve() whenever the
+    matrix is upper or lower triangular.
+
+    A triangular system is solved by substitution in
+    O(n^2) time, and a triangular matrix is inverted in
+    place in about n^3 / 3 multiplications, instead of
+    the full Gauss-Jordan sweep over the matrix and an
+    augmented identity matrix.
+
+    All of the loops are ordered so that the innermost
+    loop walks down a column.
+ */
+public class Triangular {
+    /*
+        The solvers go through the right-hand sides in
+        blocks of this many columns, so that each column
+        of the triangular matrix is read once per block
+        while the block stays in the cache.
+     */
+    private static final int RHS_BLOCK = 32;
+
+    /*
+        Overwrites each of the `nrhs` columns of `b` (an
+        `n` x `nrhs` column-major array) with the solution
+        x of U * x = b, where `u` is `n` x `n` and upper
+        triangular. This is back substitution.
+     */
+    static void solveUpper(double[] u, int n, double[] b, int nrhs) throws SingularMatrixException {
+        Triangular.checkDiagonal(u, n);
+
+        for (int first = 0; first < nrhs; first += RHS_BLOCK) {
+            int last = Math.min(nrhs, first + RHS_BLOCK);
+            for (int k = n - 1; k >= 0; k--) {
+                int colK = k * n;
+                double ukk = u[colK + k];
+                for (int j = first; j < last; j++) {
+                    int colB = j * n;
+                    double xk = b[colB + k] / ukk;
+                    b[colB + k] = xk;
+                    if (xk != 0) {
+                        for (int i = 0; i < k; i++) {
+                            b[colB + i] -= u[colK + i] * xk;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+        The same as solveUpper() for a lower triangular
+        `l`. This is forward substitution.
+     */
+    static void solveLower(double[] l, int n, double[] b, int nrhs) throws SingularMatrixException {
+        Triangular.checkDiagonal(l, n);
+
+        for (int first = 0; first < nrhs; first += RHS_BLOCK) {
+            int last = Math.min(nrhs, first + RHS_BLOCK);
+            for (int k = 0; k < n; k++) {
+                int colK = k * n;
+                double lkk = l[colK + k];
+                for (int j = first; j < last; j++) {
+                    int colB = j * n;
+                    double xk = b[colB + k] / lkk;
+                    b[colB + k] = xk;
+                    if (xk != 0) {
+                        for (int i = k + 1; i < n; i++) {
+                            b[colB + i] -= l[colK + i] * xk;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+        Overwrites the upper triangular `u` with its
+        inverse, which is also upper triangular.
+
+        Column `j` of the inverse only depends on the
+        top-left j x j block of the inverse, so the
+        columns are found from left to right:
+
+        inv[j][j] = 1 / u[j][j]
+        inv[0..j-1][j] = -inv[j][j] * (inv[0..j-1][0..j-1] * u[0..j-1][j])
+     */
+    static void invertUpper(double[] u, int n) throws SingularMatrixException {
+        Triangular.checkDiagonal(u, n);
+
+        for (int j = 0; j < n; j++) {
+            int colJ = j * n;
+            u[colJ + j] = 1 / u[colJ + j];
+            double scale = -u[colJ + j];
+
+            // Multiply the top of column j by the inverse found so far
+            for (int k = 0; k < j; k++) {
+                double t = u[colJ + k];
+                if (t != 0) {
+                    int colK = k * n;
+                    for (int i = 0; i < k; i++) {
+                        u[colJ + i] += u[colK + i] * t;
+                    }
+                    u[colJ + k] = u[colK + k] * t;
+                }
+            }
+            for (int i = 0; i < j; i++) {
+                u[colJ + i] *= scale;
+            }
+        }
+    }
+
+    /*
+        The same as invertUpper() for a lower triangular
+        `l`. The columns are found from right to left,
+        since column `j` of the inverse depends on the
+        bottom-right block of the inverse.
+     */
+    static void invertLower(double[] l, int n) throws SingularMatrixException {
+        Triangular.checkDiagonal(l, n);
+
+        for (int j = n - 1; j >= 0; j--) {
+            int colJ = j * n;
+            l[colJ + j] = 1 / l[colJ + j];
+            double scale = -l[colJ + j];
+
+            // Multiply the bottom of column j by the inverse found so far
+            for (int k = n - 1; k > j; k--) {
+                double t = l[colJ + k];
+                if (t != 0) {
+                    int colK = k * n;
+                    for (int i = k + 1; i < n; i++) {
+                        l[colJ + i] += l[colK + i] * t;
+                    }
+                    l[colJ + k] = l[colK + k] * t;
+                }
+            }
+            for (int i = j + 1; i < n; i++) {
+                l[colJ + i] *= scale;
+            }
+        }
+    }
+
+    /*
+        A triangular matrix is singular exactly when
+        there is a 0 on its main diagonal.
+     */
+    private static void checkDiagonal(double[] t, int n) throws SingularMatrixException {
+        for (int k = 0; k < n; k++) {
+            if (t[k * n + k] == 0) {
+                throw new SingularMatrixException("Triangular matrix has a 0 on its diagonal.");
+            }
+        }
+    }
+}
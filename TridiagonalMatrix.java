@@ -0,0 +1,214 @@
+/*
+    A square `n` x `n` matrix whose only nonzero
+    elements are on the main diagonal and the
+    diagonals right above and below it.
+
+    The three diagonals are stored as arrays, so this
+    takes O(n) memory, and solve() uses the Thomas
+    algorithm, which takes O(n) time.
+
+    Like Matrix and Vector, rows and columns are
+    numbered starting at 1.
+ */
+public class TridiagonalMatrix {
+    private int n;
+
+    /*
+        `lower[i]` is in row i+2 and column i+1,
+        `diag[i]` is in row i+1 and column i+1, and
+        `upper[i]` is in row i+1 and column i+2.
+
+        `lower` and `upper` have n-1 elements.
+     */
+    private double[] lower;
+    private double[] diag;
+    private double[] upper;
+
+    /*
+        Initializes an `n` x `n` zero matrix.
+     */
+    public TridiagonalMatrix(int n) {
+        this.n = n;
+        this.lower = new double[Math.max(n - 1, 0)];
+        this.diag = new double[n];
+        this.upper = new double[Math.max(n - 1, 0)];
+    }
+
+    /*
+        The arrays are copied, so changing them
+        afterwards does not change this matrix.
+     */
+    public TridiagonalMatrix(double[] lower, double[] diag, double[] upper) {
+        this(diag.length);
+        System.arraycopy(lower, 0, this.lower, 0, this.lower.length);
+        System.arraycopy(diag, 0, this.diag, 0, this.diag.length);
+        System.arraycopy(upper, 0, this.upper, 0, this.upper.length);
+    }
+
+    /*
+        Copies the three middle diagonals of `m`.
+        All other elements of `m` are assumed to be
+        0 and are ignored.
+     */
+    public static TridiagonalMatrix fromMatrix(Matrix m) throws Matrix.NotSquareMatrixException {
+        if (m.numRows() != m.numCols()) {
+            throw m.new NotSquareMatrixException("Tridiagonal matrices must be square.");
+        }
+
+        TridiagonalMatrix tridiagonal = new TridiagonalMatrix(m.numRows());
+        for (int col = 1; col <= m.numCols(); col++) {
+            Vector currCol = m.getColumn(col);
+            for (int row = Math.max(1, col - 1); row <= Math.min(m.numRows(), col + 1); row++) {
+                tridiagonal.set(row, col, currCol.getElement(row));
+            }
+        }
+        return tridiagonal;
+    }
+
+    public Matrix toMatrix() {
+        double[] values = new double[this.n * this.n];
+        for (int i = 0; i < this.n; i++) {
+            values[i * this.n + i] = this.diag[i];
+            if (i < this.n - 1) {
+                values[i * this.n + i + 1] = this.lower[i];
+                values[(i + 1) * this.n + i] = this.upper[i];
+            }
+        }
+        return Matrix.fromColumnMajor(values, this.n, this.n);
+    }
+
+    /*
+        Returns the same matrix as a BandMatrix with
+        one diagonal below and one above the main
+        diagonal.
+     */
+    public BandMatrix toBandMatrix() {
+        BandMatrix band = new BandMatrix(this.n, 1, 1);
+        for (int i = 1; i <= this.n; i++) {
+            band.set(i, i, this.diag[i - 1]);
+            if (i < this.n) {
+                band.set(i + 1, i, this.lower[i - 1]);
+                band.set(i, i + 1, this.upper[i - 1]);
+            }
+        }
+        return band;
+    }
+
+    public int size() {
+        return this.n;
+    }
+
+    public double get(int row, int col) {
+        if (row < 1 || row > this.n || col < 1 || col > this.n) {
+            return 0;
+        }
+        if (row == col) {
+            return this.diag[row - 1];
+        } else if (row == col + 1) {
+            return this.lower[col - 1];
+        } else if (col == row + 1) {
+            return this.upper[row - 1];
+        }
+        return 0;
+    }
+
+    /*
+        Elements outside of the three diagonals can
+        not be set, just like Vector.setElement()
+        ignores invalid positions.
+     */
+    public void set(int row, int col, double value) {
+        if (row < 1 || row > this.n || col < 1 || col > this.n) {
+            return;
+        }
+        if (row == col) {
+            this.diag[row - 1] = value;
+        } else if (row == col + 1) {
+            this.lower[col - 1] = value;
+        } else if (col == row + 1) {
+            this.upper[row - 1] = value;
+        }
+    }
+
+    /*
+        Returns the solution `x` of the system A * x = `b`
+        where A is the current matrix, using the Thomas
+        algorithm. `b` is not altered.
+
+        Going down, each row has the row above it
+        subtracted to clear its `lower` element. Going
+        back up, each unknown is found from the one
+        below it.
+
+        The Thomas algorithm does not swap rows, which is
+        fine for the diagonally dominant matrices that
+        finite differences produce. If it runs into a 0
+        pivot, the system is solved as a BandMatrix (with
+        row swaps) instead.
+     */
+    public double[] solve(double[] b) throws SingularMatrixException, Matrix.DimensionMismatchException {
+        this.checkSize(b);
+        double[] x = new double[this.n];
+        double[] modifiedUpper = new double[this.n];
+
+        for (int i = 0; i < this.n; i++) {
+            double pivot = this.diag[i];
+            if (i > 0) {
+                pivot -= this.lower[i - 1] * modifiedUpper[i - 1];
+            }
+            if (pivot == 0) {
+                return this.toBandMatrix().solve(b);
+            }
+            if (i < this.n - 1) {
+                modifiedUpper[i] = this.upper[i] / pivot;
+            }
+            x[i] = (b[i] - (i > 0 ? this.lower[i - 1] * x[i - 1] : 0)) / pivot;
+        }
+
+        for (int i = this.n - 2; i >= 0; i--) {
+            x[i] -= modifiedUpper[i] * x[i + 1];
+        }
+
+        return x;
+    }
+
+    public Vector solve(Vector b) throws SingularMatrixException, Matrix.DimensionMismatchException {
+        return new Vector(this.solve(b.getValuesArray()));
+    }
+
+    /*
+        Throws a DimensionMismatchException unless `b`
+        has one element per row of the current matrix.
+        Matrix.DimensionMismatchException is an inner
+        class, so it needs an (empty) Matrix to create it.
+     */
+    private void checkSize(double[] b) throws Matrix.DimensionMismatchException {
+        if (b.length != this.n) {
+            throw new Matrix().new DimensionMismatchException(
+                    "The vector must have one element per row of the matrix.");
+        }
+    }
+
+    /*
+        The determinant of the first `k` rows and
+        columns, f(k), follows the recurrence
+
+        f(k) = diag[k] * f(k-1) - lower[k-1] * upper[k-1] * f(k-2)
+
+        which takes O(n) time.
+     */
+    public double det() {
+        double prev = 1;
+        double curr = this.n > 0 ? this.diag[0] : 1;
+        for (int i = 1; i < this.n; i++) {
+            double next = this.diag[i] * curr - this.lower[i - 1] * this.upper[i - 1] * prev;
+            prev = curr;
+            curr = next;
+        }
+        return curr;
+    }
+
+    public String toString() {
+        return this.toMatrix().toString();
+    }
+}
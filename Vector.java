@@ -1,10 +1,72 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class Vector {
     private int size;
     private ArrayList<Double> values;
 
+    /*
+        When this Vector was created with `offHeap()`,
+        the elements live in a direct buffer outside of
+        the Java heap instead of in `values`, and
+        `values` is left null.
+
+        The capacity of the buffer can be larger than
+        `size` so that addElement() does not have to
+        reallocate on every call.
+
+        `offHeapMemory` is the direct buffer that
+        `offHeapValues` is a view of. It is kept so that
+        its memory can be freed by release() (see free()).
+     */
+    private DoubleBuffer offHeapValues;
+    private ByteBuffer offHeapMemory;
+
+    /*
+        Unsafe.invokeCleaner(), which frees the memory of
+        a direct buffer right away, or null on JVMs that
+        do not have it.
+     */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /*
+        When this Vector was created with `float32()`,
+        the elements are stored in single precision in
+        `floatValues` instead, which takes half of the
+        memory of doubles (and much less than boxed
+        Doubles). Just like the off-heap buffer, the
+        array can be longer than `size`.
+
+        Elements are rounded to the nearest float when
+        they are set.
+     */
+    private float[] floatValues;
+
     public Vector() {
+        Instrumentation.allocations(1);
         this.size = 0;
         values = new ArrayList<Double>();
     }
@@ -14,19 +76,36 @@ public class Vector {
         with all 0s. The zero vector.
      */
     public Vector(int size) {
+        Instrumentation.allocations(1);
         this.size = size;
         values = new ArrayList<Double>();
         for(int i=0; i<size; i++)
             values.add(0.0);
     }
 
+    /*
+        The copy keeps the same kind of storage as
+        `other`, so copies of an off-heap or float32
+        Vector are also off-heap or float32.
+     */
     public Vector(Vector other) {
-        this.values = new ArrayList<Double>();
-        this.values.addAll(other.values);
+        Instrumentation.allocations(1);
+        if (other.isFloat32()) {
+            this.floatValues = new float[Math.max(other.size, 1)];
+            System.arraycopy(other.floatValues, 0, this.floatValues, 0, other.size);
+        } else if (other.isOffHeap()) {
+            this.allocateOffHeap(Math.max(other.size, 1));
+            for(int i=0; i<other.size; i++)
+                this.offHeapValues.put(i, other.offHeapValues.get(i));
+        } else {
+            this.values = new ArrayList<Double>();
+            this.values.addAll(other.values);
+        }
         this.size = other.size;
     }
 
     public Vector(double[] values) {
+        Instrumentation.allocations(1);
         this.values = new ArrayList<Double>();
 
         for(int i=0; i<values.length; i++)
@@ -35,6 +114,92 @@ public class Vector {
         this.size = this.values.size();
     }
 
+    /*
+        Returns the zero vector of dimension `size`
+        whose elements are stored off of the Java heap.
+
+        Large matrices built out of these Vectors do not
+        put their elements on the heap, so the garbage
+        collector never has to scan or copy them.
+
+        Call release() once the Vector is no longer needed
+        to free the memory right away. Otherwise it is only
+        freed after the garbage collector finds that the
+        Vector is unreachable, which can take a long time,
+        since the Vector itself is small.
+     */
+    public static Vector offHeap(int size) {
+        Vector vector = new Vector();
+        vector.values = null;
+        vector.allocateOffHeap(Math.max(size, 1));
+        vector.size = size;
+        return vector;
+    }
+
+    private void allocateOffHeap(int capacity) {
+        this.offHeapMemory = ByteBuffer.allocateDirect(capacity * Double.BYTES)
+                                       .order(ByteOrder.nativeOrder());
+        this.offHeapValues = this.offHeapMemory.asDoubleBuffer();
+    }
+
+    /*
+        Frees the memory of the direct buffer `memory`
+        right away. Nothing may read or write the buffer
+        (or a view of it) afterwards.
+
+        On a JVM without Unsafe.invokeCleaner(), the
+        memory is left for the garbage collector instead.
+     */
+    private static void free(ByteBuffer memory) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, memory);
+        } catch (ReflectiveOperationException e) {
+            // Left for the garbage collector
+        }
+    }
+
+    public boolean isOffHeap() {
+        return this.offHeapValues != null;
+    }
+
+    /*
+        Returns the zero vector of dimension `size`
+        whose elements are stored as floats.
+     */
+    public static Vector float32(int size) {
+        Vector vector = new Vector();
+        vector.values = null;
+        vector.floatValues = new float[Math.max(size, 1)];
+        vector.size = size;
+        return vector;
+    }
+
+    public boolean isFloat32() {
+        return this.floatValues != null;
+    }
+
+    /*
+        Frees the off-heap buffer of this Vector right
+        away and makes it an empty heap Vector again.
+
+        The Vector must not be used for its old values
+        after this is called, and must not be in use by
+        another thread while it is called.
+     */
+    public void release() {
+        if (this.isOffHeap()) {
+            ByteBuffer memory = this.offHeapMemory;
+            this.offHeapValues = null;
+            this.offHeapMemory = null;
+            Vector.free(memory);
+            this.values = new ArrayList<Double>();
+            this.size = 0;
+        }
+    }
+
 
     public int getSize() {
         return this.size;
@@ -45,11 +210,42 @@ public class Vector {
         of ArrayList, so `pos`-1 is used,
      */
     public double getElement(int pos) {
+        if (this.isFloat32()) {
+            if (pos < 1 || pos > this.size)
+                throw new IndexOutOfBoundsException("Index: " + pos + ", Size: " + this.size);
+            return this.floatValues[pos-1];
+        }
+        if (this.isOffHeap()) {
+            if (pos < 1 || pos > this.size)
+                throw new IndexOutOfBoundsException("Index: " + pos + ", Size: " + this.size);
+            return this.offHeapValues.get(pos-1);
+        }
         return values.get(pos-1);
     }
 
     public void addElement(double value) {
-        this.values.add(value);
+        if (this.isFloat32()) {
+            if (this.size == this.floatValues.length) {
+                this.floatValues = Arrays.copyOf(this.floatValues, 2 * this.floatValues.length);
+            }
+            this.floatValues[this.size] = (float) value;
+        } else if (this.isOffHeap()) {
+            /*
+                Double the capacity of the buffer when
+                it is full, just like an ArrayList would.
+             */
+            if (this.size == this.offHeapValues.capacity()) {
+                DoubleBuffer old = this.offHeapValues;
+                ByteBuffer oldMemory = this.offHeapMemory;
+                this.allocateOffHeap(2 * old.capacity());
+                for(int i=0; i<this.size; i++)
+                    this.offHeapValues.put(i, old.get(i));
+                Vector.free(oldMemory);
+            }
+            this.offHeapValues.put(this.size, value);
+        } else {
+            this.values.add(value);
+        }
         this.size++;
     }
 
@@ -68,7 +264,12 @@ public class Vector {
                 -1 adjusts for the indexing used by
                 ArrayList.
              */
-            this.values.set(position-1, value);
+            if (this.isFloat32())
+                this.floatValues[position-1] = (float) value;
+            else if (this.isOffHeap())
+                this.offHeapValues.put(position-1, value);
+            else
+                this.values.set(position-1, value);
         }
     }
 
@@ -76,10 +277,20 @@ public class Vector {
         Since an ArrayList is used to represent the
         vector, calling the remove() function should
         appropriately shrink the ArrayList's size.
+
+        An off-heap or float32 Vector shifts the elements after
+        `position` down by one instead.
     */
     public void removeElement(int position) {
         if (position >= 1 && position <= this.size) {
-            this.values.remove(position - 1);
+            if (this.isFloat32()) {
+                System.arraycopy(this.floatValues, position, this.floatValues, position-1, this.size-position);
+            } else if (this.isOffHeap()) {
+                for(int i=position; i < this.size; i++)
+                    this.offHeapValues.put(i-1, this.offHeapValues.get(i));
+            } else {
+                this.values.remove(position - 1);
+            }
             this.size--;
         }
     }
@@ -88,7 +299,7 @@ public class Vector {
         double[] valuesArray = new double[this.size];
 
         for(int i=0; i < valuesArray.length; i++) {
-            valuesArray[i] = this.getElement(i);
+            valuesArray[i] = this.getElement(i+1);
         }
 
         return valuesArray;
@@ -101,7 +312,7 @@ public class Vector {
         ArrayList<Double> arrayCopy = new ArrayList<Double>();
 
         for(int i=0; i < this.size; i++) {
-            arrayCopy.add(this.getElement(i));
+            arrayCopy.add(this.getElement(i+1));
         }
 
         return arrayCopy;